@@ -0,0 +1,87 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.ResourceException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.EventBus;
+
+/**
+ * Measures the overhead of the outbound connection on a send, against the raw EventBus of Vert.x.
+ *
+ * Run it with <code>gradle jmh -PjmhInclude=OutboundSend</code>, the GC profiler reports the bytes
+ * allocated per send as <code>gc.alloc.rate.norm</code>:
+ * <ul>
+ * <li><code>rawSend</code> sends on the EventBus of the Vert.x platform.</li>
+ * <li><code>connectionSend</code> sends on <code>connection.eventBus()</code>, as an application does with a connection handle.</li>
+ * </ul>
+ *
+ * No handler is registered on the address, so only the send path is measured, not the delivery.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboundSendBenchmark
+{
+
+   private static final String ADDRESS = "outbound-benchmark";
+
+   private static final String BODY = "benchmark body";
+
+   private Vertx vertx;
+
+   private EventBus eventBus;
+
+   private VertxManagedConnection managedConnection;
+
+   private VertxConnection connection;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      this.vertx = VertxFactory.newVertx();
+      this.eventBus = this.vertx.eventBus();
+      this.managedConnection = new VertxManagedConnection(new VertxManagedConnectionFactory(), this.vertx);
+      this.connection = new VertxConnectionImpl(this.managedConnection);
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      this.managedConnection.destroy();
+      this.vertx.stop();
+   }
+
+   @Benchmark
+   public EventBus rawSend()
+   {
+      return this.eventBus.send(ADDRESS, BODY);
+   }
+
+   @Benchmark
+   public EventBus connectionSend() throws ResourceException
+   {
+      return this.connection.eventBus().send(ADDRESS, BODY);
+   }
+
+}
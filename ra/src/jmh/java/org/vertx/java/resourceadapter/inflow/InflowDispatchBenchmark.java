@@ -0,0 +1,305 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Timer;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.BootstrapContext;
+import javax.resource.spi.UnavailableException;
+import javax.resource.spi.XATerminator;
+import javax.resource.spi.endpoint.MessageEndpoint;
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+import javax.resource.spi.work.ExecutionContext;
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkContext;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkListener;
+import javax.resource.spi.work.WorkManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.xa.XAResource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.resourceadapter.VertxResourceAdapter;
+
+/**
+ * Measures the inflow dispatch of one message, from the event bus handler to the endpoint.
+ *
+ * Run it with <code>gradle jmh</code>, the GC profiler reports the bytes allocated per message
+ * as <code>gc.alloc.rate.norm</code>:
+ * <ul>
+ * <li><code>perMessageWork</code> is the former path, a new Work per message scheduled to the WorkManager.</li>
+ * <li><code>activationDispatch</code> is the path of VertxActivation, which reuses its dispatch slots and carriers.</li>
+ * </ul>
+ *
+ * The WorkManager runs the works on the calling thread, so the whole delivery is measured
+ * without the allocations of an application server WorkManager.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InflowDispatchBenchmark
+{
+
+   private Vertx vertx;
+
+   private CallerRunsWorkManager workManager;
+
+   private VertxActivation activation;
+
+   private BenchmarkEndpoint endpoint;
+
+   private Message<?> message;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      this.vertx = VertxFactory.newVertx();
+      this.workManager = new CallerRunsWorkManager();
+      VertxResourceAdapter ra = new VertxResourceAdapter();
+      ra.start(new BenchmarkBootstrapContext(this.workManager));
+
+      VertxActivationSpec spec = new VertxActivationSpec();
+      spec.setAddress("inflow-benchmark");
+      this.endpoint = new BenchmarkEndpoint();
+      this.activation = new VertxActivation(ra, new BenchmarkEndpointFactory(this.endpoint), spec);
+      this.activation.whenReady(this.vertx);
+      this.message = createMessage("inflow-benchmark", "benchmark body");
+   }
+
+   @TearDown
+   public void tearDown()
+   {
+      this.activation.stop();
+      this.vertx.stop();
+   }
+
+   @Benchmark
+   public int perMessageWork() throws WorkException
+   {
+      this.workManager.scheduleWork(new PerMessageWork(this.endpoint, this.message));
+      return this.endpoint.count;
+   }
+
+   @Benchmark
+   public int activationDispatch()
+   {
+      this.activation.handleMessage(this.message);
+      return this.endpoint.count;
+   }
+
+   /**
+    * The message is a proxy, the methods used by the delivery take no arguments and do not allocate.
+    */
+   private static Message<?> createMessage(final String address, final Object body)
+   {
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if ("address".equals(method.getName()))
+               {
+                  return address;
+               }
+               if ("body".equals(method.getName()))
+               {
+                  return body;
+               }
+               return null;
+            }
+         });
+   }
+
+   private static class PerMessageWork implements Work
+   {
+      private final VertxListener listener;
+
+      private final Message<?> message;
+
+      private PerMessageWork(VertxListener listener, Message<?> message)
+      {
+         this.listener = listener;
+         this.message = message;
+      }
+
+      @Override
+      public void run()
+      {
+         listener.onMessage(message);
+      }
+
+      @Override
+      public void release()
+      {
+      }
+   }
+
+   private static class BenchmarkEndpoint implements MessageEndpoint, VertxListener
+   {
+      private int count;
+
+      @Override
+      public <T> void onMessage(Message<T> message)
+      {
+         if (message.body() != null)
+         {
+            count++;
+         }
+      }
+
+      @Override
+      public void beforeDelivery(Method method)
+      {
+      }
+
+      @Override
+      public void afterDelivery()
+      {
+      }
+
+      @Override
+      public void release()
+      {
+      }
+   }
+
+   private static class BenchmarkEndpointFactory implements MessageEndpointFactory
+   {
+      private final BenchmarkEndpoint endpoint;
+
+      private BenchmarkEndpointFactory(BenchmarkEndpoint endpoint)
+      {
+         this.endpoint = endpoint;
+      }
+
+      @Override
+      public MessageEndpoint createEndpoint(XAResource xaResource) throws UnavailableException
+      {
+         return endpoint;
+      }
+
+      @Override
+      public MessageEndpoint createEndpoint(XAResource xaResource, long timeout) throws UnavailableException
+      {
+         return endpoint;
+      }
+
+      @Override
+      public boolean isDeliveryTransacted(Method method) throws NoSuchMethodException
+      {
+         return false;
+      }
+   }
+
+   private static class CallerRunsWorkManager implements WorkManager
+   {
+      /** Keeps the last work, as a WorkManager queues it, so the JIT can not eliminate its allocation **/
+      private Work last;
+
+      @Override
+      public void doWork(Work work) throws WorkException
+      {
+         work.run();
+      }
+
+      @Override
+      public void doWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+            throws WorkException
+      {
+         work.run();
+      }
+
+      @Override
+      public long startWork(Work work) throws WorkException
+      {
+         work.run();
+         return 0;
+      }
+
+      @Override
+      public long startWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+            throws WorkException
+      {
+         work.run();
+         return 0;
+      }
+
+      @Override
+      public void scheduleWork(Work work) throws WorkException
+      {
+         last = work;
+         work.run();
+      }
+
+      @Override
+      public void scheduleWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+            throws WorkException
+      {
+         work.run();
+      }
+   }
+
+   private static class BenchmarkBootstrapContext implements BootstrapContext
+   {
+      private final WorkManager workManager;
+
+      private BenchmarkBootstrapContext(WorkManager workManager)
+      {
+         this.workManager = workManager;
+      }
+
+      @Override
+      public WorkManager getWorkManager()
+      {
+         return workManager;
+      }
+
+      @Override
+      public XATerminator getXATerminator()
+      {
+         return null;
+      }
+
+      @Override
+      public Timer createTimer() throws UnavailableException
+      {
+         return new Timer(true);
+      }
+
+      @Override
+      public boolean isContextSupported(Class<? extends WorkContext> workContextClass)
+      {
+         return false;
+      }
+
+      @Override
+      public TransactionSynchronizationRegistry getTransactionSynchronizationRegistry()
+      {
+         return null;
+      }
+   }
+
+}
@@ -61,9 +61,11 @@ public class VertxConnectionImpl implements VertxConnection
    public EventBus eventBus() throws ResourceException
    {
       log.finest("getConnection()");
-      if (this.mc != null)
+      // read once, close() may clear it concurrently
+      VertxManagedConnection mc = this.mc;
+      if (mc != null)
       {
-         return this.mc.getEventBus();
+         return mc.getEventBus();
       }
       throw new ResourceException("Vertx Managed Connection has been closed.");
    }
@@ -69,6 +69,12 @@ public class VertxManagedConnection implements ManagedConnection, VertxHolder
    /** The Vert.x Platform **/
    private final Vertx vertx;
    
+   /** The EventBus handed to the connection handles, one per managed connection **/
+   private final EventBus eventBus;
+   
+   /** The metadata, it does not change during the life of the managed connection **/
+   private final ManagedConnectionMetaData metaData;
+   
    /**
     * Default constructor
     * @param mcf mcf
@@ -77,6 +83,8 @@ public class VertxManagedConnection implements ManagedConnection, VertxHolder
    {
       this.mcf = mcf;
       this.vertx = vertx;
+      this.eventBus = new WrappedEventBus(vertx.eventBus());
+      this.metaData = new VertxManagedConnectionMetaData();
       this.logwriter = null;
       this.listeners = Collections.synchronizedList(new ArrayList<ConnectionEventListener>(1));
       this.vertxConn = null;
@@ -249,12 +257,12 @@ public class VertxManagedConnection implements ManagedConnection, VertxHolder
    public ManagedConnectionMetaData getMetaData() throws ResourceException
    {
       log.finest("getMetaData()");
-      return new VertxManagedConnectionMetaData();
+      return this.metaData;
    }
 
    EventBus getEventBus()
    {
-      return new WrappedEventBus(vertx.eventBus());
+      return this.eventBus;
    }
 
    SharedData getSharedData()
@@ -16,6 +16,9 @@ import com.hazelcast.config.XmlConfigBuilder;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -56,8 +59,15 @@ public class VertxPlatformFactory
    private ConcurrentHashSet<VertxHolder> vertxHolders = new ConcurrentHashSet<VertxHolder>();
    
    
+   /**
+    * Vert.x platforms being started, by platform identifier, guarded by lock.
+    */
+   private Map<String, PlatformStart> startingPlatforms = new HashMap<String, PlatformStart>();
+   
    private Lock lock = new ReentrantLock();
    
+   private Lock startLock = new ReentrantLock();
+   
    private Lock holderLock = new ReentrantLock();
    
    /**
@@ -68,22 +78,106 @@ public class VertxPlatformFactory
    }
 
    /**
-    * Creates a Vertx if one is not started yet.
+    * Creates a Vertx if one is not started yet, and waits for it to start.
     * 
     * @param config the configuration to start a vertx
     * @param lifecyleListener the vertx lifecycle listener
     */
    public void createVertxIfNotStart(final VertxPlatformConfiguration config, final VertxListener lifecyleListener)
    {
+      CountDownLatch vertxStartCount = startVertx(config, lifecyleListener);
+      try
+      {
+         vertxStartCount.await(); // waiting for the vertx starts up.
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+   }
+   
+   /**
+    * Creates a Vertx if one is not started yet, without waiting for it to start.
+    * 
+    * The listener is called on the calling thread if the Vertx has been started already, on a Vert.x thread
+    * when it starts otherwise, and is not called if it fails to start.
+    * 
+    * If the Vertx is being started by another caller, the listener is just added to the ones waiting for it.
+    * Otherwise the calling thread starts it, which includes joining the cluster.
+    * 
+    * @param config the configuration to start a vertx
+    * @param lifecyleListener the vertx lifecycle listener
+    */
+   public void createVertxAsync(final VertxPlatformConfiguration config, final VertxListener lifecyleListener)
+   {
+      startVertx(config, lifecyleListener);
+   }
+   
+   private CountDownLatch startVertx(final VertxPlatformConfiguration config, final VertxListener lifecyleListener)
+   {
+      String id = config.getVertxPlatformIdentifier();
+      Vertx vertx;
+      PlatformStart start = null;
+      boolean starter = false;
       lock.lock();
-      Vertx vertx = this.vertxPlatforms.get(config.getVertxPlatformIdentifier());
-      if (vertx != null)
+      try
+      {
+         vertx = this.vertxPlatforms.get(id);
+         if (vertx == null)
+         {
+            start = this.startingPlatforms.get(id);
+            if (start != null)
+            {
+               log.log(Level.INFO, "Vert.x platform at: " + id + " is being started, waits for it.");
+               start.listeners.add(lifecyleListener);
+            }
+            else
+            {
+               start = new PlatformStart(lifecyleListener);
+               this.startingPlatforms.put(id, start);
+               starter = true;
+            }
+         }
+      }
+      finally
       {
          lock.unlock();
-         log.log(Level.INFO, "Vert.x platform at: " + config.getVertxPlatformIdentifier() + " has been started.");
+      }
+      if (vertx != null)
+      {
+         log.log(Level.INFO, "Vert.x platform at: " + id + " has been started.");
          lifecyleListener.whenReady(vertx);
-         return;
+         return new CountDownLatch(0);
+      }
+      if (starter)
+      {
+         try
+         {
+            newVertx(config, start);
+         }
+         catch(Exception exp)
+         {
+            lock.lock();
+            try
+            {
+               this.startingPlatforms.remove(id);
+            }
+            finally
+            {
+               lock.unlock();
+            }
+            start.started.countDown();
+            throw new RuntimeException(exp);
+         }
       }
+      return start.started;
+   }
+   
+   private void newVertx(final VertxPlatformConfiguration config, final PlatformStart start) throws IOException
+   {
+      // the cluster manager factory takes the hazelcast configuration from a static field, one platform starts at a time.
+      startLock.lock();
       try
       {
          Integer clusterPort = config.getClusterPort();
@@ -95,46 +189,74 @@ public class VertxPlatformFactory
          Config hazelcastCfg = loadHazelcastConfig(config);
          ProgrammableClusterManagerFactory.setConfig(hazelcastCfg);
 
-         final CountDownLatch vertxStartCount = new CountDownLatch(1);
          VertxFactory.newVertx(clusterPort, clusterHost, new Handler<AsyncResult<Vertx>>()
                {
                   @Override
                   public void handle(final AsyncResult<Vertx> result)
                   {
-                     try
-                     {
-                        if (result.succeeded())
-                        {
-                           log.log(Level.INFO, "Vert.x Platform at: " + config.getVertxPlatformIdentifier() + " Started Successfully.");
-                           vertxPlatforms.putIfAbsent(config.getVertxPlatformIdentifier(), result.result());
-                           lifecyleListener.whenReady(result.result());
-                        }
-                        else if (result.failed())
-                        {
-                           log.log(Level.SEVERE, "Failed to start Vert.x at: " + config.getVertxPlatformIdentifier());
-                           Throwable cause = result.cause();
-                           if (cause != null)
-                           {
-                              throw new RuntimeException(cause);
-                           }
-                        }
-                     }
-                     finally
-                     {
-                        vertxStartCount.countDown();
-                     }
+                     vertxStarted(config, start, result);
                   }
                });
-         vertxStartCount.await(); // waiting for the vertx starts up.
       }
-      catch(Exception exp)
+      finally
       {
-         throw new RuntimeException(exp);
+         startLock.unlock();
+      }
+   }
+   
+   private void vertxStarted(VertxPlatformConfiguration config, PlatformStart start, AsyncResult<Vertx> result)
+   {
+      String id = config.getVertxPlatformIdentifier();
+      boolean cleared;
+      List<VertxListener> listeners;
+      lock.lock();
+      try
+      {
+         cleared = this.startingPlatforms.get(id) != start;
+         if (!cleared)
+         {
+            this.startingPlatforms.remove(id);
+            if (result.succeeded())
+            {
+               this.vertxPlatforms.putIfAbsent(id, result.result());
+            }
+         }
+         listeners = new ArrayList<VertxListener>(start.listeners);
       }
       finally
       {
          lock.unlock();
       }
+      try
+      {
+         if (result.failed())
+         {
+            log.log(Level.SEVERE, "Failed to start Vert.x at: " + id, result.cause());
+            return;
+         }
+         if (cleared)
+         {
+            log.log(Level.WARNING, "Vert.x platforms were cleared while starting the one at: " + id + ", stops it.");
+            result.result().stop();
+            return;
+         }
+         log.log(Level.INFO, "Vert.x Platform at: " + id + " Started Successfully.");
+         for (VertxListener listener: listeners)
+         {
+            try
+            {
+               listener.whenReady(result.result());
+            }
+            catch (RuntimeException e)
+            {
+               log.log(Level.SEVERE, "Vert.x listener failed when Vert.x at: " + id + " is ready.", e);
+            }
+         }
+      }
+      finally
+      {
+         start.started.countDown();
+      }
    }
 
    private Config loadHazelcastConfig(VertxPlatformConfiguration config) throws IOException
@@ -287,6 +409,7 @@ public class VertxPlatformFactory
             log.log(Level.INFO, "Vert.x Platform at address: " + entry.getKey() + " is Closed.");
          }
          this.vertxPlatforms.clear();
+         this.startingPlatforms.clear();
          this.vertxHolders.clear();
       }
       finally
@@ -305,11 +428,27 @@ public class VertxPlatformFactory
       /**
        * When vertx is ready, maybe just started, or have been started already.
        * 
-       * NOTE: can't call vertxPlatforms related methods within this callback method, which will cause infinite waiting. 
+       * It is called without holding the lock of the factory, so it can call the other methods of the factory.
        * 
        * @param vertx the Vert.x
        */
       void whenReady(Vertx vertx);
    }
    
+   /**
+    * A Vert.x platform being started, with the listeners waiting for it.
+    */
+   private static class PlatformStart
+   {
+      
+      private final List<VertxListener> listeners = new ArrayList<VertxListener>();
+      
+      private final CountDownLatch started = new CountDownLatch(1);
+      
+      private PlatformStart(VertxListener listener)
+      {
+         this.listeners.add(listener);
+      }
+   }
+   
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ import org.vertx.java.resourceadapter.inflow.VertxActivation;
 import org.vertx.java.resourceadapter.inflow.VertxActivationSpec;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.resource.ResourceException;
@@ -104,7 +105,14 @@ public class VertxResourceAdapter implements ResourceAdapter, java.io.Serializab
    {
       VertxActivation activation = activations.remove(spec);
       if (activation != null)
+      {
+         if (activation.getFailure() != null)
+         {
+            log.log(Level.WARNING, "Deactivates the endpoint on address: " + activation.getActivationSpec().getAddress()
+               + ", which consumed no message because its activation failed.", activation.getFailure());
+         }
          activation.stop();
+      }
 
       log.finest("endpointDeactivation()");
 
@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+/**
+ * AdaptiveConcurrencyLimit adjusts how many deliveries run at the same time from the latency of the completed ones.
+ *
+ * Two moving averages of the latency are kept, a short one following the recent deliveries and a long one
+ * as the baseline. While the short average stays within <code>tolerance</code> times the baseline, the limit
+ * grows: by one per delivery until the first decrease, then by one per <code>limit</code> deliveries. When
+ * the short average rises above it, or a delivery fails, the limit is multiplied by 0.9, at most once
+ * per <code>limit</code> deliveries so that the deliveries started at the old limit do not shrink it again.
+ *
+ * A lasting change of the latency becomes the new baseline after a few hundred deliveries.
+ *
+ */
+public class AdaptiveConcurrencyLimit
+{
+
+   /** Weight of a delivery in the short average **/
+   private static final double SHORT_WEIGHT = 0.1;
+
+   /** Weight of a delivery in the long average **/
+   private static final double LONG_WEIGHT = 0.01;
+
+   private static final double BACKOFF_RATIO = 0.9;
+
+   private final int minLimit;
+
+   private final int maxLimit;
+
+   private final double tolerance;
+
+   /** Guarded by this **/
+   private double limit;
+
+   /** Guarded by this **/
+   private double shortNanos;
+
+   /** Guarded by this **/
+   private double longNanos;
+
+   /** Deliveries completed since the last decrease, guarded by this **/
+   private int samplesSinceDecrease;
+
+   /** Whether the limit grows by one per delivery, guarded by this **/
+   private boolean slowStart = true;
+
+   /**
+    * Constructor
+    *
+    * @param minLimit the lowest limit, also the initial one
+    * @param maxLimit the highest limit
+    * @param tolerance how many times the baseline the recent latency can reach before the limit is decreased
+    */
+   public AdaptiveConcurrencyLimit(int minLimit, int maxLimit, double tolerance)
+   {
+      if (minLimit < 1)
+      {
+         throw new IllegalArgumentException("minLimit must be positive.");
+      }
+      if (maxLimit < minLimit)
+      {
+         throw new IllegalArgumentException("maxLimit can't be less than minLimit.");
+      }
+      if (!(tolerance > 1.0))
+      {
+         throw new IllegalArgumentException("tolerance must be greater than 1.");
+      }
+      this.minLimit = minLimit;
+      this.maxLimit = maxLimit;
+      this.tolerance = tolerance;
+      this.limit = minLimit;
+   }
+
+   /**
+    * Records a completed delivery.
+    *
+    * @param latencyNanos how long the delivery took
+    * @param failed whether the delivery failed
+    * @return the new limit
+    */
+   public synchronized int update(long latencyNanos, boolean failed)
+   {
+      if (longNanos == 0)
+      {
+         shortNanos = latencyNanos;
+         longNanos = latencyNanos;
+      }
+      else
+      {
+         shortNanos += (latencyNanos - shortNanos) * SHORT_WEIGHT;
+         longNanos += (latencyNanos - longNanos) * LONG_WEIGHT;
+      }
+      samplesSinceDecrease++;
+      if (failed || shortNanos > longNanos * tolerance)
+      {
+         if (samplesSinceDecrease >= limit)
+         {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            samplesSinceDecrease = 0;
+            slowStart = false;
+         }
+      }
+      else if (slowStart)
+      {
+         limit = Math.min(maxLimit, limit + 1);
+      }
+      else
+      {
+         limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+      return (int)limit;
+   }
+
+   /**
+    * @return the current limit
+    */
+   public synchronized int getLimit()
+   {
+      return (int)limit;
+   }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.VertxInternal;
+import org.vertx.java.core.spi.cluster.ClusterManager;
+
+import com.hazelcast.core.HazelcastInstance;
+
+/**
+ * AddressResolver resolves the addresses an activation listens on.
+ * 
+ * The address of an activation spec is a comma separated list, an entry ending with <code>*</code> is a prefix pattern.
+ * Vert.x has no wildcard subscriptions, so a pattern is resolved once, when the activation starts,
+ * to the addresses which have subscriptions in the Vert.x cluster at that time.
+ * Only the cluster the activation's Vert.x platform is a member of is read, other Hazelcast instances
+ * in the same JVM are not considered.
+ *
+ */
+public class AddressResolver
+{
+
+   private static Logger log = Logger.getLogger(AddressResolver.class.getName());
+
+   /** Name of the Vert.x cluster map holding the subscriptions by address **/
+   private static final String SUBSCRIPTIONS_MAP = "subs";
+
+   /** Field of the Vert.x Hazelcast cluster manager holding its Hazelcast instance **/
+   private static final String HAZELCAST_FIELD = "hazelcast";
+
+   static final String PATTERN_SUFFIX = "*";
+
+   private AddressResolver()
+   {
+   }
+
+   /**
+    * Splits the comma separated address list.
+    * 
+    * @param addressList the comma separated address list
+    * @return the trimmed, non empty entries
+    */
+   public static List<String> split(String addressList)
+   {
+      List<String> entries = new ArrayList<String>();
+      if (addressList == null)
+      {
+         return entries;
+      }
+      for (String entry: addressList.split(","))
+      {
+         entry = entry.trim();
+         if (entry.length() > 0 && !entries.contains(entry))
+         {
+            entries.add(entry);
+         }
+      }
+      return entries;
+   }
+
+   /**
+    * @param entry an entry of the address list
+    * @return true if it is a prefix pattern
+    */
+   public static boolean isPattern(String entry)
+   {
+      return entry.endsWith(PATTERN_SUFFIX);
+   }
+
+   /**
+    * Resolves the address list, prefix patterns are replaced by the matched cluster addresses.
+    * 
+    * @param addressList the comma separated address list
+    * @param vertx the Vert.x platform whose cluster is searched for the patterns
+    * @return the addresses to listen on
+    */
+   public static List<String> resolve(String addressList, Vertx vertx)
+   {
+      Collection<String> clusterAddresses = Collections.emptySet();
+      for (String entry: split(addressList))
+      {
+         if (isPattern(entry))
+         {
+            clusterAddresses = clusterAddresses(vertx);
+            break;
+         }
+      }
+      return resolve(addressList, clusterAddresses);
+   }
+
+   /**
+    * Resolves the address list against the given cluster addresses.
+    * 
+    * @param addressList the comma separated address list
+    * @param clusterAddresses the addresses which have subscriptions in the cluster
+    * @return the addresses to listen on
+    */
+   static List<String> resolve(String addressList, Collection<String> clusterAddresses)
+   {
+      Set<String> addresses = new LinkedHashSet<String>();
+      for (String entry: split(addressList))
+      {
+         if (!isPattern(entry))
+         {
+            addresses.add(entry);
+            continue;
+         }
+         String prefix = entry.substring(0, entry.length() - PATTERN_SUFFIX.length());
+         boolean matched = false;
+         for (String address: clusterAddresses)
+         {
+            if (address.startsWith(prefix))
+            {
+               addresses.add(address);
+               matched = true;
+            }
+         }
+         if (!matched)
+         {
+            log.log(Level.WARNING, "No address in the Vert.x cluster matches the pattern: " + entry);
+         }
+      }
+      return new ArrayList<String>(addresses);
+   }
+
+   /**
+    * Reads the subscribed addresses from the cluster manager of the Vert.x platform.
+    * 
+    * The cluster manager SPI can't list the keys of a multi map, so they are read from the Hazelcast
+    * instance behind the Vert.x Hazelcast cluster manager.
+    * 
+    * @param vertx the Vert.x platform
+    * @return the subscribed addresses, empty if the platform is not clustered with Hazelcast
+    */
+   static Set<String> clusterAddresses(Vertx vertx)
+   {
+      Set<String> addresses = new LinkedHashSet<String>();
+      ClusterManager clusterManager = vertx instanceof VertxInternal ? ((VertxInternal)vertx).clusterManager() : null;
+      if (clusterManager == null)
+      {
+         log.log(Level.WARNING, "The Vert.x platform is not clustered, address patterns can't be resolved.");
+         return addresses;
+      }
+      try
+      {
+         HazelcastInstance hazelcast = hazelcastInstance(clusterManager);
+         if (hazelcast == null)
+         {
+            log.log(Level.WARNING, "Can't read the subscriptions of cluster manager: " + clusterManager.getClass().getName());
+            return addresses;
+         }
+         for (Object key: hazelcast.getMultiMap(SUBSCRIPTIONS_MAP).keySet())
+         {
+            if (key instanceof String)
+            {
+               addresses.add((String)key);
+            }
+         }
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't read the subscriptions of the Vert.x cluster.", e);
+      }
+      return addresses;
+   }
+
+   private static HazelcastInstance hazelcastInstance(ClusterManager clusterManager) throws IllegalAccessException
+   {
+      for (Class<?> type = clusterManager.getClass(); type != null; type = type.getSuperclass())
+      {
+         try
+         {
+            Field field = type.getDeclaredField(HAZELCAST_FIELD);
+            if (!HazelcastInstance.class.isAssignableFrom(field.getType()))
+            {
+               return null;
+            }
+            field.setAccessible(true);
+            return (HazelcastInstance)field.get(clusterManager);
+         }
+         catch (NoSuchFieldException e)
+         {
+            // look in the super class
+         }
+      }
+      return null;
+   }
+
+}
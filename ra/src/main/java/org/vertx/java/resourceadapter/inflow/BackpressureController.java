@@ -0,0 +1,134 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+
+/**
+ * BackpressureController pauses the inflow of an activation when its dispatch queue is too long.
+ * 
+ * When the queue reaches the high watermark, the pause handler is called with <code>true</code>, the activation
+ * then unregisters its event bus handler, so that the cluster routes the messages to the other nodes.
+ * The queue is then checked periodically, and when it drops to the low watermark the pause handler is
+ * called with <code>false</code> to register the handler again.
+ * 
+ * The methods are called on the Vert.x event loop when a message is received, and on the delivery threads when
+ * journaled messages are drained, so the state is guarded by the controller. The pause handler is called under
+ * that lock, one call at a time, and not anymore once the controller is closed.
+ *
+ */
+public class BackpressureController
+{
+
+   /** Milliseconds between two checks of the queue while paused **/
+   static final long CHECK_PERIOD_MILLIS = 20L;
+
+   private final Vertx vertx;
+
+   private final MessageDispatcher dispatcher;
+
+   private final int highWatermark;
+
+   private final int lowWatermark;
+
+   private final Handler<Boolean> pauseHandler;
+
+   private final Handler<Long> checkHandler = new Handler<Long>()
+   {
+      @Override
+      public void handle(Long timerId)
+      {
+         checkResume();
+      }
+   };
+
+   /** Guarded by this **/
+   private long timerId = -1;
+
+   /** Guarded by this **/
+   private boolean paused;
+
+   /** Guarded by this **/
+   private boolean closed;
+
+   /**
+    * Constructor
+    * 
+    * @param vertx the Vertx used to check the queue periodically
+    * @param dispatcher the dispatcher whose queue is watched
+    * @param highWatermark queue size which pauses the inflow
+    * @param lowWatermark queue size which resumes the inflow
+    * @param pauseHandler called with true to pause, false to resume
+    */
+   public BackpressureController(Vertx vertx, MessageDispatcher dispatcher, int highWatermark, int lowWatermark,
+         Handler<Boolean> pauseHandler)
+   {
+      if (highWatermark < 1)
+      {
+         throw new IllegalArgumentException("highWatermark must be positive.");
+      }
+      if (lowWatermark < 0 || lowWatermark >= highWatermark)
+      {
+         throw new IllegalArgumentException("lowWatermark must be less than highWatermark.");
+      }
+      this.vertx = vertx;
+      this.dispatcher = dispatcher;
+      this.highWatermark = highWatermark;
+      this.lowWatermark = lowWatermark;
+      this.pauseHandler = pauseHandler;
+   }
+
+   /**
+    * Checks the queue after a message is dispatched, pauses the inflow if the high watermark is reached.
+    */
+   public synchronized void dispatched()
+   {
+      if (closed || paused || dispatcher.getQueueSize() < highWatermark)
+      {
+         return;
+      }
+      paused = true;
+      pauseHandler.handle(Boolean.TRUE);
+      timerId = vertx.setPeriodic(CHECK_PERIOD_MILLIS, checkHandler);
+   }
+
+   private synchronized void checkResume()
+   {
+      if (closed || !paused || dispatcher.getQueueSize() > lowWatermark)
+      {
+         return;
+      }
+      cancelTimer();
+      paused = false;
+      pauseHandler.handle(Boolean.FALSE);
+   }
+
+   private void cancelTimer()
+   {
+      if (timerId != -1)
+      {
+         vertx.cancelTimer(timerId);
+         timerId = -1;
+      }
+   }
+
+   /**
+    * @return true if the inflow is paused
+    */
+   public synchronized boolean isPaused()
+   {
+      return paused;
+   }
+
+   /**
+    * Stops watching the queue.
+    */
+   public synchronized void close()
+   {
+      closed = true;
+      cancelTimer();
+   }
+
+}
@@ -0,0 +1,300 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * ChunkedInputStream is the receiving end of a stream sent by a {@link ChunkedStreamSender}.
+ *
+ * The chunks are received on the event loop and read on the delivery thread. The reply to a chunk is the credit
+ * for the next one: it is sent at once while less than <code>window</code> chunks wait to be read, otherwise
+ * when the reader takes one, so at most <code>window</code> chunks are held in memory. The reply to the last
+ * chunk is only sent when the delivery completes, with 0 if it succeeds or a failure otherwise.
+ *
+ * The chunks of a stream are a chain of replies, so they all reach the node and the activation which received
+ * the first one.
+ *
+ */
+class ChunkedInputStream extends InputStream
+{
+
+   private final int window;
+
+   private final long timeoutMillis;
+
+   private final int failureCode;
+
+   private final Handler<AsyncResult<Message<Object>>> nextChunkHandler = new Handler<AsyncResult<Message<Object>>>()
+   {
+      @Override
+      public void handle(AsyncResult<Message<Object>> result)
+      {
+         if (result.failed())
+         {
+            abort("Stream interrupted: " + result.cause().getMessage());
+            return;
+         }
+         receive(result.result());
+      }
+   };
+
+   /** Chunks received and not read yet, guarded by this **/
+   private final Queue<ByteBuf> chunks = new ArrayDeque<ByteBuf>();
+
+   /** The chunk being read, guarded by this **/
+   private ByteBuf current;
+
+   /** The chunk whose credit is held back while the window is full, guarded by this **/
+   private Message<?> pendingCredit;
+
+   /** The last chunk, replied when the delivery completes, guarded by this **/
+   private Message<?> lastChunk;
+
+   /** Guarded by this **/
+   private int nextSequence;
+
+   /** The stream id of the first chunk, which every next chunk carries, guarded by this **/
+   private long streamId;
+
+   /** Why the stream is broken, null while it is not, guarded by this **/
+   private String failure;
+
+   /** Guarded by this **/
+   private boolean closed;
+
+   /**
+    * Constructor
+    *
+    * @param window maximum number of chunks held in memory
+    * @param timeoutMillis how long the next chunk is waited for
+    * @param failureCode the failure code replied when the stream is aborted
+    */
+   ChunkedInputStream(int window, long timeoutMillis, int failureCode)
+   {
+      this.window = window;
+      this.timeoutMillis = timeoutMillis;
+      this.failureCode = failureCode;
+   }
+
+   /**
+    * Receives a chunk, called on the event loop.
+    *
+    * @param message the message of the chunk
+    */
+   synchronized void receive(Message<?> message)
+   {
+      StreamChunk chunk = StreamChunk.decode(message.body());
+      if (closed || failure != null)
+      {
+         message.fail(failureCode, failure != null ? failure : "Stream is closed by the endpoint.");
+         return;
+      }
+      if (chunk != null && nextSequence == 0)
+      {
+         streamId = chunk.streamId;
+      }
+      String cause = null;
+      if (chunk == null)
+      {
+         cause = "Stream message is not a chunk.";
+      }
+      else if (chunk.streamId != streamId)
+      {
+         cause = "Chunk of stream " + chunk.streamId + " received, stream " + streamId + " expected.";
+      }
+      else if (chunk.sequence != nextSequence)
+      {
+         cause = "Chunk " + chunk.sequence + " received, chunk " + nextSequence + " expected.";
+      }
+      if (cause != null)
+      {
+         message.fail(failureCode, cause);
+         abort(cause);
+         return;
+      }
+      nextSequence++;
+      if (chunk.data.isReadable())
+      {
+         chunks.offer(chunk.data);
+      }
+      if (chunk.last)
+      {
+         lastChunk = message;
+      }
+      else if (chunks.size() < window)
+      {
+         requestNext(message);
+      }
+      else
+      {
+         pendingCredit = message;
+      }
+      notifyAll();
+   }
+
+   private void requestNext(Message<?> message)
+   {
+      message.replyWithTimeout(Integer.valueOf(nextSequence), timeoutMillis, nextChunkHandler);
+   }
+
+   @Override
+   public synchronized int read() throws IOException
+   {
+      if (!awaitData())
+      {
+         return -1;
+      }
+      return current.readByte() & 0xFF;
+   }
+
+   @Override
+   public synchronized int read(byte[] b, int off, int len) throws IOException
+   {
+      if (len == 0)
+      {
+         return 0;
+      }
+      if (!awaitData())
+      {
+         return -1;
+      }
+      int length = Math.min(len, current.readableBytes());
+      current.readBytes(b, off, length);
+      return length;
+   }
+
+   @Override
+   public synchronized int available()
+   {
+      int available = current == null ? 0 : current.readableBytes();
+      for (ByteBuf chunk: chunks)
+      {
+         available += chunk.readableBytes();
+      }
+      return available;
+   }
+
+   /**
+    * Waits until the current chunk has data to read.
+    *
+    * @return false at the end of the stream
+    */
+   private boolean awaitData() throws IOException
+   {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      while (current == null || !current.isReadable())
+      {
+         if (closed)
+         {
+            throw new IOException("Stream is closed.");
+         }
+         if (failure != null)
+         {
+            throw new IOException(failure);
+         }
+         current = chunks.poll();
+         if (current != null)
+         {
+            if (pendingCredit != null)
+            {
+               // the window has room again
+               requestNext(pendingCredit);
+               pendingCredit = null;
+            }
+            continue;
+         }
+         if (lastChunk != null)
+         {
+            return false;
+         }
+         long wait = deadline - System.currentTimeMillis();
+         if (wait <= 0)
+         {
+            abort("No chunk received in " + timeoutMillis + " milliseconds.");
+            continue;
+         }
+         try
+         {
+            wait(wait);
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the next chunk.");
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Breaks the stream, the reader gets an IOException and the sender a failure.
+    */
+   synchronized void abort(String cause)
+   {
+      if (failure != null)
+      {
+         return;
+      }
+      failure = cause;
+      chunks.clear();
+      if (pendingCredit != null)
+      {
+         pendingCredit.fail(failureCode, cause);
+         pendingCredit = null;
+      }
+      notifyAll();
+   }
+
+   /**
+    * Replies the outcome of the delivery to the sender, called once the delivery completes.
+    *
+    * @param deliveryFailure why the delivery failed, null if it succeeded
+    */
+   synchronized void finish(String deliveryFailure)
+   {
+      if (lastChunk != null)
+      {
+         if (deliveryFailure == null)
+         {
+            lastChunk.reply(Integer.valueOf(0));
+         }
+         else
+         {
+            lastChunk.fail(failureCode, deliveryFailure);
+         }
+         lastChunk = null;
+      }
+      else
+      {
+         // the endpoint returned before the end of the stream
+         abort(deliveryFailure != null ? deliveryFailure : "Stream is closed by the endpoint.");
+      }
+      closed = true;
+      chunks.clear();
+      notifyAll();
+   }
+
+   @Override
+   public synchronized void close()
+   {
+      if (lastChunk == null)
+      {
+         abort("Stream is closed by the endpoint.");
+      }
+      closed = true;
+      chunks.clear();
+      notifyAll();
+   }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.EventBus;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * ChunkedStreamSender sends a payload of any size to a {@link VertxStreamListener}, in chunks read from an InputStream
+ * one at a time, so neither side holds the whole payload in memory.
+ *
+ * The first chunk is sent to the address, each next one is sent as the reply to the credit the receiver replies to
+ * the previous one, and the reply to the last chunk is the outcome of the delivery. The receiver replies a credit
+ * only while it has room for the chunk, which bounds its memory, and every chunk carries its sequence.
+ *
+ * The send blocks the calling thread until the delivery completes, so it must not be called on a Vert.x event loop.
+ * The calling thread can be the one of a JCA outbound connection, like <code>new ChunkedStreamSender(connection.eventBus(), ...)</code>.
+ *
+ */
+public class ChunkedStreamSender
+{
+
+   /** Default size of a chunk in bytes */
+   public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+   private static final Random STREAM_IDS = new Random();
+
+   private final EventBus eventBus;
+
+   private final int chunkSize;
+
+   private final long timeoutMillis;
+
+   /**
+    * Constructor
+    *
+    * @param eventBus the event bus the chunks are sent on
+    * @param chunkSize the size of a chunk in bytes
+    * @param timeoutMillis how long the credit for the next chunk, and the outcome of the delivery, are waited for
+    */
+   public ChunkedStreamSender(EventBus eventBus, int chunkSize, long timeoutMillis)
+   {
+      if (eventBus == null)
+      {
+         throw new IllegalArgumentException("EventBus can't be null.");
+      }
+      if (chunkSize < 1)
+      {
+         throw new IllegalArgumentException("chunkSize must be positive.");
+      }
+      if (timeoutMillis < 1)
+      {
+         throw new IllegalArgumentException("timeoutMillis must be positive.");
+      }
+      this.eventBus = eventBus;
+      this.chunkSize = chunkSize;
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   /**
+    * Sends the content of the InputStream, until its end.
+    *
+    * @param address the address of the VertxStreamListener
+    * @param in the payload, not closed by this method
+    * @throws IOException if the payload can't be read, or the stream is aborted or not delivered by the receiver
+    */
+   public void send(String address, InputStream in) throws IOException
+   {
+      long streamId = STREAM_IDS.nextLong();
+      byte[] data = new byte[chunkSize];
+      Message<Object> credit = null;
+      for (int sequence = 0; ; sequence++)
+      {
+         int length = readChunk(in, data);
+         boolean last = length < chunkSize;
+         Buffer chunk = StreamChunk.encode(streamId, sequence, last, data, length);
+         Reply reply = new Reply();
+         if (credit == null)
+         {
+            eventBus.sendWithTimeout(address, chunk, timeoutMillis, reply);
+         }
+         else
+         {
+            credit.replyWithTimeout(chunk, timeoutMillis, reply);
+         }
+         credit = reply.await(sequence);
+         if (last)
+         {
+            return;
+         }
+      }
+   }
+
+   /**
+    * @return number of bytes read, less than the chunk size only at the end of the stream
+    */
+   private static int readChunk(InputStream in, byte[] data) throws IOException
+   {
+      int length = 0;
+      while (length < data.length)
+      {
+         int read = in.read(data, length, data.length - length);
+         if (read == -1)
+         {
+            break;
+         }
+         length += read;
+      }
+      return length;
+   }
+
+   private class Reply implements Handler<AsyncResult<Message<Object>>>
+   {
+
+      private final CountDownLatch latch = new CountDownLatch(1);
+
+      private volatile AsyncResult<Message<Object>> result;
+
+      @Override
+      public void handle(AsyncResult<Message<Object>> result)
+      {
+         this.result = result;
+         latch.countDown();
+      }
+
+      private Message<Object> await(int sequence) throws IOException
+      {
+         try
+         {
+            // the event bus times out the reply, the latch only guards against a lost one
+            if (!latch.await(timeoutMillis + 1000L, TimeUnit.MILLISECONDS))
+            {
+               throw new IOException("No reply to chunk " + sequence + " in " + timeoutMillis + " milliseconds.");
+            }
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reply to chunk " + sequence);
+         }
+         if (result.failed())
+         {
+            throw new IOException("Chunk " + sequence + " is not delivered: " + result.cause().getMessage(), result.cause());
+         }
+         return result.result();
+      }
+   }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.resource.spi.work.Work;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * ConflatingInflowDispatcher keeps only the newest queued work per key, for addresses whose messages carry
+ * the latest value of something, like a price, and where a stale value is worth nothing once a newer one arrives.
+ *
+ * While a slot is free the works are scheduled as they come. When all slots are busy, a work whose key
+ * already has a queued work takes its place in the queue, and the superseded work is handed to
+ * <code>supersededHandler</code> instead of being delivered. The queue then holds at most one work per key,
+ * in the order the keys were first queued, and <code>maxQueueDepth</code> bounds the number of keys.
+ *
+ * The key is only extracted when the work is queued. A message without key is never conflated.
+ *
+ */
+public class ConflatingInflowDispatcher extends InflowDispatcher
+{
+
+   private static Logger log = Logger.getLogger(ConflatingInflowDispatcher.class.getName());
+
+   private final KeyExtractor keyExtractor;
+
+   private final Handler<Work> supersededHandler;
+
+   /** The newest queued work per key, guarded by the dispatcher lock **/
+   private final Map<Object, Work> pending = new LinkedHashMap<Object, Work>();
+
+   /**
+    * Constructor
+    *
+    * @param executor the executor used to run the works
+    * @param keyExtractor extracts the conflation key of a message
+    * @param maxConcurrency maximum number of works scheduled at the same time
+    * @param maxQueueDepth maximum number of keys with a queued work
+    * @param supersededHandler called under the dispatcher lock with each work replaced by a newer one
+    */
+   public ConflatingInflowDispatcher(Executor executor, KeyExtractor keyExtractor, int maxConcurrency, int maxQueueDepth,
+         Handler<Work> supersededHandler)
+   {
+      super(executor, maxConcurrency, maxQueueDepth);
+      if (keyExtractor == null)
+      {
+         throw new IllegalArgumentException("KeyExtractor can't be null.");
+      }
+      this.keyExtractor = keyExtractor;
+      this.supersededHandler = supersededHandler;
+   }
+
+   @Override
+   protected boolean enqueue(Message<?> message, Work work)
+   {
+      Object key = message == null ? null : extractKey(message);
+      if (key == null)
+      {
+         // a work is queued once, so it is a key of its own
+         key = work;
+      }
+      Work superseded = pending.get(key);
+      if (superseded == null && pending.size() >= getMaxQueueDepth())
+      {
+         return false;
+      }
+      pending.put(key, work);
+      if (superseded != null)
+      {
+         supersededHandler.handle(superseded);
+      }
+      return true;
+   }
+
+   private Object extractKey(Message<?> message)
+   {
+      try
+      {
+         return keyExtractor.extractKey(message);
+      }
+      catch (RuntimeException e)
+      {
+         log.log(Level.WARNING, "Can't extract the conflation key of a message on address: " + message.address(), e);
+         return null;
+      }
+   }
+
+   @Override
+   protected Work dequeue()
+   {
+      Iterator<Work> works = pending.values().iterator();
+      if (!works.hasNext())
+      {
+         return null;
+      }
+      Work work = works.next();
+      works.remove();
+      return work;
+   }
+
+   @Override
+   protected int queued()
+   {
+      return pending.size();
+   }
+
+}
@@ -0,0 +1,383 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.resource.spi.work.Work;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * InflowDispatcher bounds the inflow works one activation submits to its executor, which is usually the WorkManager.
+ *
+ * At most <code>maxConcurrency</code> works are scheduled at the same time, the others wait in a queue
+ * of at most <code>maxQueueDepth</code> works and are scheduled when a running work completes.
+ *
+ * Works are rejected when the queue is full, so a burst on one address can not flood the WorkManager.
+ *
+ * The works are submitted wrapped in slots which are created once and reused, so dispatching does not allocate
+ * once all slots exist. A submitted slot acts as the drainer of the queue: once its work completes it takes
+ * the next queued work and runs it on the same thread, until the queue is empty, so a burst costs one submission
+ * to the executor per slot instead of one per message. After <code>DRAIN_BUDGET</code> works in a row the slot is
+ * submitted again, which lets the other works of the executor run.
+ *
+ * The concurrency limit can be lowered below <code>maxConcurrency</code> while dispatching, a slot whose work
+ * completes above the limit is then freed instead of running the next queued work.
+ *
+ */
+public class InflowDispatcher implements MessageDispatcher
+{
+
+   private static Logger log = Logger.getLogger(InflowDispatcher.class.getName());
+
+   /** Maximum number of works a slot runs before it is submitted again **/
+   static final int DRAIN_BUDGET = 256;
+
+   private final Executor executor;
+
+   private final int maxConcurrency;
+
+   private final int maxQueueDepth;
+
+   /** Works waiting for a free slot, guarded by this **/
+   private final Queue<Work> queue = new ArrayDeque<Work>();
+
+   /** Slots not running any work, guarded by this **/
+   private final DispatchSlot[] idleSlots;
+
+   /** Number of idle slots, guarded by this **/
+   private int idleCount;
+
+   /** Number of slots created so far, guarded by this **/
+   private int slotCount;
+
+   /** Maximum number of works scheduled at the same time, at most maxConcurrency, guarded by this **/
+   private int concurrencyLimit;
+
+   private boolean closed;
+
+   /**
+    * Constructor
+    *
+    * @param executor the executor used to run the works
+    * @param maxConcurrency maximum number of works scheduled at the same time
+    * @param maxQueueDepth maximum number of works waiting for a free slot
+    */
+   public InflowDispatcher(Executor executor, int maxConcurrency, int maxQueueDepth)
+   {
+      if (executor == null)
+      {
+         throw new IllegalArgumentException("Executor can't be null.");
+      }
+      if (maxConcurrency < 1)
+      {
+         throw new IllegalArgumentException("maxConcurrency must be positive.");
+      }
+      if (maxQueueDepth < 0)
+      {
+         throw new IllegalArgumentException("maxQueueDepth can't be negative.");
+      }
+      this.executor = executor;
+      this.maxConcurrency = maxConcurrency;
+      this.maxQueueDepth = maxQueueDepth;
+      this.idleSlots = new DispatchSlot[maxConcurrency];
+      this.concurrencyLimit = maxConcurrency;
+   }
+
+   /**
+    * Dispatches a work, schedules it immediately if there is a free slot, queues it otherwise.
+    *
+    * @param work the work
+    * @return true if the work is scheduled or queued, false if it is rejected because the queue is full
+    *         or the executor rejects it.
+    */
+   public boolean dispatch(Work work)
+   {
+      return dispatch(null, work);
+   }
+
+   @Override
+   public boolean dispatch(Message<?> message, Work work)
+   {
+      DispatchSlot slot;
+      synchronized (this)
+      {
+         if (closed)
+         {
+            return false;
+         }
+         slot = takeSlot();
+         if (slot == null)
+         {
+            return enqueue(message, work);
+         }
+         slot.work = work;
+      }
+      try
+      {
+         this.executor.execute(slot);
+      }
+      catch (RejectedExecutionException e)
+      {
+         // the caller rejects the work like when the queue is full
+         log.log(Level.SEVERE, "Can't schedule the inflow work.", e);
+         scheduleNext(slot);
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Queues a work while all slots are busy, called under the dispatcher lock.
+    *
+    * @param message the message of the work, null if it is unknown
+    * @param work the work
+    * @return false if the work is rejected
+    */
+   protected boolean enqueue(Message<?> message, Work work)
+   {
+      if (queue.size() >= maxQueueDepth)
+      {
+         return false;
+      }
+      queue.offer(work);
+      return true;
+   }
+
+   /**
+    * Takes the next queued work, called under the dispatcher lock.
+    *
+    * @return the work, null if nothing is queued
+    */
+   protected Work dequeue()
+   {
+      return queue.poll();
+   }
+
+   /**
+    * @return number of queued works, called under the dispatcher lock
+    */
+   protected int queued()
+   {
+      return queue.size();
+   }
+
+   /**
+    * @return a slot to run a work in, null if the concurrency limit is reached
+    */
+   private DispatchSlot takeSlot()
+   {
+      if (slotCount - idleCount >= concurrencyLimit)
+      {
+         return null;
+      }
+      if (idleCount > 0)
+      {
+         DispatchSlot slot = idleSlots[--idleCount];
+         idleSlots[idleCount] = null;
+         return slot;
+      }
+      slotCount++;
+      return new DispatchSlot();
+   }
+
+   /**
+    * Hands the slot of a completed work to the next queued one, or frees the slot if nothing is queued.
+    *
+    * @return the next work, null if the slot is freed
+    */
+   private synchronized Work takeNext(DispatchSlot slot)
+   {
+      // the active count still includes this slot
+      Work next = closed || slotCount - idleCount > concurrencyLimit ? null : dequeue();
+      slot.work = next;
+      if (next == null)
+      {
+         idleSlots[idleCount++] = slot;
+      }
+      return next;
+   }
+
+   /**
+    * Submits the slot again with the next queued work, or frees the slot if nothing is queued.
+    */
+   private void scheduleNext(DispatchSlot slot)
+   {
+      while (true)
+      {
+         Work next = takeNext(slot);
+         if (next == null)
+         {
+            return;
+         }
+         try
+         {
+            this.executor.execute(slot);
+            return;
+         }
+         catch (RejectedExecutionException e)
+         {
+            log.log(Level.SEVERE, "Can't schedule the queued inflow work.", e);
+            next.release();
+         }
+      }
+   }
+
+   /**
+    * Changes the number of works scheduled at the same time, the queued works are scheduled at once
+    * when the limit is raised, the running ones complete when it is lowered.
+    *
+    * @param limit the new limit, bounded to 1 and maxConcurrency
+    */
+   public void setConcurrencyLimit(int limit)
+   {
+      synchronized (this)
+      {
+         concurrencyLimit = Math.max(1, Math.min(maxConcurrency, limit));
+      }
+      while (true)
+      {
+         DispatchSlot slot;
+         Work next;
+         synchronized (this)
+         {
+            if (closed || queued() == 0)
+            {
+               return;
+            }
+            slot = takeSlot();
+            if (slot == null)
+            {
+               return;
+            }
+            next = dequeue();
+            slot.work = next;
+         }
+         try
+         {
+            this.executor.execute(slot);
+         }
+         catch (RejectedExecutionException e)
+         {
+            log.log(Level.SEVERE, "Can't schedule the queued inflow work.", e);
+            next.release();
+            scheduleNext(slot);
+            return;
+         }
+      }
+   }
+
+   /**
+    * @return the current concurrency limit
+    */
+   public synchronized int getConcurrencyLimit()
+   {
+      return concurrencyLimit;
+   }
+
+   @Override
+   public synchronized int getQueueSize()
+   {
+      return queued();
+   }
+
+   @Override
+   public synchronized int getActiveCount()
+   {
+      return slotCount - idleCount;
+   }
+
+   /**
+    * @return the maxConcurrency
+    */
+   public int getMaxConcurrency()
+   {
+      return maxConcurrency;
+   }
+
+   /**
+    * @return the maxQueueDepth
+    */
+   public int getMaxQueueDepth()
+   {
+      return maxQueueDepth;
+   }
+
+   @Override
+   public void close()
+   {
+      List<Work> pending = new ArrayList<Work>();
+      synchronized (this)
+      {
+         closed = true;
+         Work work;
+         while ((work = dequeue()) != null)
+         {
+            pending.add(work);
+         }
+      }
+      for (Work work: pending)
+      {
+         work.release();
+      }
+   }
+
+   private class DispatchSlot implements Work
+   {
+
+      /** The work to run, set under the dispatcher lock before the slot is submitted **/
+      private Work work;
+
+      @Override
+      public void run()
+      {
+         Work current = work;
+         for (int drained = 1; ; drained++)
+         {
+            try
+            {
+               current.run();
+            }
+            catch (RuntimeException e)
+            {
+               log.log(Level.SEVERE, "Inflow work failed.", e);
+            }
+            catch (Error e)
+            {
+               scheduleNext(this);
+               throw e;
+            }
+            if (drained >= DRAIN_BUDGET)
+            {
+               scheduleNext(this);
+               return;
+            }
+            current = takeNext(this);
+            if (current == null)
+            {
+               return;
+            }
+         }
+      }
+
+      /**
+       * A running delivery can't be cut short, the works which never run are released by the dispatcher.
+       */
+      @Override
+      public void release()
+      {
+         
+      }
+
+   }
+
+}
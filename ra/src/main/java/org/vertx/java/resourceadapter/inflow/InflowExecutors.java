@@ -0,0 +1,129 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+
+/**
+ * InflowExecutors creates the executors the inflow works run on.
+ * 
+ * By default the works are scheduled to the WorkManager of the application server, an activation
+ * can use its own thread pool instead, or virtual threads when the JVM supports them.
+ *
+ */
+public class InflowExecutors
+{
+
+   private static Logger log = Logger.getLogger(InflowExecutors.class.getName());
+
+   private InflowExecutors()
+   {
+   }
+
+   /**
+    * @param workManager the WorkManager
+    * @return an Executor scheduling the works to the WorkManager
+    */
+   public static Executor workManager(final WorkManager workManager)
+   {
+      if (workManager == null)
+      {
+         throw new IllegalArgumentException("WorkManager can't be null.");
+      }
+      return new Executor()
+      {
+         @Override
+         public void execute(Runnable command)
+         {
+            try
+            {
+               workManager.scheduleWork((Work)command);
+            }
+            catch (WorkException e)
+            {
+               throw new RejectedExecutionException("Can't schedule the inflow work.", e);
+            }
+         }
+      };
+   }
+
+   /**
+    * The work queue of the pool is array backed, submitting a work does not allocate a queue node.
+    * 
+    * @param name the name prefix of the threads
+    * @param threads number of threads
+    * @param capacity maximum number of works submitted and not yet completed, works beyond it are rejected
+    * @return a fixed thread pool owned by the activation
+    */
+   public static ExecutorService threadPool(String name, int threads, int capacity)
+   {
+      return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+         new ArrayBlockingQueue<Runnable>(Math.max(1, capacity)), new InflowThreadFactory(name));
+   }
+
+   /**
+    * Creates an executor starting one virtual thread per work, falls back to a thread pool
+    * if the JVM does not support virtual threads.
+    * 
+    * @param name the name prefix of the threads of the fallback thread pool
+    * @param threads number of threads of the fallback thread pool
+    * @param capacity capacity of the work queue of the fallback thread pool
+    * @return the executor
+    */
+   public static ExecutorService virtualThreads(String name, int threads, int capacity)
+   {
+      try
+      {
+         // looked up by reflection, the resource adapter is built for Java versions without virtual threads
+         Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService)factory.invoke(null);
+      }
+      catch (NoSuchMethodException e)
+      {
+         log.log(Level.WARNING, "Virtual threads are not supported by this JVM, uses a thread pool of " + threads + " threads.");
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't create the virtual thread executor, uses a thread pool of " + threads + " threads.", e);
+      }
+      return threadPool(name, threads, capacity);
+   }
+
+   private static class InflowThreadFactory implements ThreadFactory
+   {
+
+      private final String name;
+
+      private final AtomicInteger count = new AtomicInteger();
+
+      private InflowThreadFactory(String name)
+      {
+         this.name = name;
+      }
+
+      @Override
+      public Thread newThread(Runnable r)
+      {
+         Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
+}
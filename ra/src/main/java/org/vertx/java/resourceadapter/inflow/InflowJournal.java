@@ -0,0 +1,809 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * InflowJournal is a local append only log of the received messages, kept in memory mapped segment files.
+ *
+ * A message is appended when it is received, read back in order when the endpoint can take it, and marked
+ * completed in place once its delivery is done. A segment file is deleted when all its entries are completed,
+ * the pending entries of the segments found when the journal is opened are read again, so the messages
+ * received before a redeploy or a crash of the JVM are delivered at least once.
+ *
+ * The appends are not forced to the disk, the entries survive a crash of the JVM but not of the operating system.
+ *
+ * The journal locks its directory, so one journal at a time uses it. A segment is unmapped when it is deleted
+ * and when the journal is closed.
+ *
+ * Each entry is: <code>int length | byte status | long sequence | address | body</code>, the length is written
+ * last, a zero length marks the end of the entries in a segment.
+ *
+ */
+public class InflowJournal
+{
+
+   private static Logger log = Logger.getLogger(InflowJournal.class.getName());
+
+   private static final String SEGMENT_PREFIX = "inflow-";
+
+   private static final String SEGMENT_SUFFIX = ".journal";
+
+   private static final String LOCK_FILE = "inflow.lock";
+
+   /** Bytes before the status, the length of the entry */
+   private static final int LENGTH_SIZE = 4;
+
+   /** Bytes of status and sequence */
+   private static final int HEADER_SIZE = 1 + 8;
+
+   private static final byte PENDING = 0;
+
+   private static final byte COMPLETED = 1;
+
+   private static final byte TYPE_NULL = 0;
+
+   private static final byte TYPE_STRING = 1;
+
+   private static final byte TYPE_BUFFER = 2;
+
+   private static final byte TYPE_BYTES = 3;
+
+   private static final byte TYPE_JSON_OBJECT = 4;
+
+   private static final byte TYPE_JSON_ARRAY = 5;
+
+   private static final byte TYPE_BOOLEAN = 6;
+
+   private static final byte TYPE_BYTE = 7;
+
+   private static final byte TYPE_SHORT = 8;
+
+   private static final byte TYPE_INTEGER = 9;
+
+   private static final byte TYPE_LONG = 10;
+
+   private static final byte TYPE_FLOAT = 11;
+
+   private static final byte TYPE_DOUBLE = 12;
+
+   private static final byte TYPE_CHARACTER = 13;
+
+   private final File directory;
+
+   private final int segmentSize;
+
+   /** The segments in order, guarded by this **/
+   private final List<Segment> segments = new ArrayList<Segment>();
+
+   /** The segment appended to, guarded by this **/
+   private Segment writeSegment;
+
+   /** The segment and position of the next entry to read, guarded by this **/
+   private Segment readSegment;
+
+   private int readPosition;
+
+   /** Entries read already and handed back, read again before the next entries, guarded by this **/
+   private final Deque<JournaledMessage<Object>> requeued = new ArrayDeque<JournaledMessage<Object>>();
+
+   private long nextSequence = 1;
+
+   /** When the pending entries appended since the journal is opened were received, by sequence, guarded by this **/
+   private final Map<Long, Long> receivedNanos = new HashMap<Long, Long>();
+
+   /** Number of entries not completed yet, guarded by this **/
+   private int pendingCount;
+
+   private boolean closed;
+
+   /** The lock file of the directory, and its lock held while the journal is open **/
+   private final RandomAccessFile lockFile;
+
+   private final FileLock lock;
+
+   private InflowJournal(File directory, int segmentSize, RandomAccessFile lockFile, FileLock lock)
+   {
+      this.directory = directory;
+      this.segmentSize = segmentSize;
+      this.lockFile = lockFile;
+      this.lock = lock;
+   }
+
+   /**
+    * Opens the journal in the directory, the pending entries it already holds are read first.
+    *
+    * @param directory the directory of the segment files, created if it does not exist
+    * @param segmentSize the size of a segment file in bytes
+    * @return the journal
+    * @throws IOException if the segment files can't be opened, or the directory is used by another journal
+    */
+   public static InflowJournal open(File directory, int segmentSize) throws IOException
+   {
+      if (segmentSize < 1024)
+      {
+         throw new IllegalArgumentException("segmentSize must be at least 1024 bytes.");
+      }
+      if (!directory.isDirectory() && !directory.mkdirs())
+      {
+         throw new IOException("Can't create the journal directory: " + directory);
+      }
+      RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+      FileLock lock;
+      try
+      {
+         lock = lockFile.getChannel().tryLock();
+      }
+      catch (OverlappingFileLockException e)
+      {
+         // held in this JVM
+         lock = null;
+      }
+      catch (IOException e)
+      {
+         lockFile.close();
+         throw e;
+      }
+      if (lock == null)
+      {
+         lockFile.close();
+         throw new IOException("The journal directory is used by another journal: " + directory);
+      }
+      InflowJournal journal = new InflowJournal(directory, segmentSize, lockFile, lock);
+      try
+      {
+         journal.load();
+      }
+      catch (IOException e)
+      {
+         journal.close();
+         throw e;
+      }
+      return journal;
+   }
+
+   private void load() throws IOException
+   {
+      File[] files = directory.listFiles(new FileFilter()
+      {
+         @Override
+         public boolean accept(File file)
+         {
+            return file.isFile() && file.getName().startsWith(SEGMENT_PREFIX) && file.getName().endsWith(SEGMENT_SUFFIX);
+         }
+      });
+      if (files == null)
+      {
+         throw new IOException("Can't list the journal directory: " + directory);
+      }
+      Arrays.sort(files, new Comparator<File>()
+      {
+         @Override
+         public int compare(File f1, File f2)
+         {
+            long i1 = segmentIndex(f1);
+            long i2 = segmentIndex(f2);
+            return i1 < i2 ? -1 : (i1 == i2 ? 0 : 1);
+         }
+      });
+      for (File file: files)
+      {
+         Segment segment = new Segment(file, segmentIndex(file), map(file, (int)Math.max(file.length(), segmentSize)));
+         scan(segment);
+         if (segment.pending == 0)
+         {
+            segment.release();
+            continue;
+         }
+         segments.add(segment);
+         pendingCount += segment.pending;
+      }
+      if (!segments.isEmpty())
+      {
+         writeSegment = segments.get(segments.size() - 1);
+         readSegment = segments.get(0);
+         log.log(Level.INFO, pendingCount + " pending messages are found in the journal: " + directory);
+      }
+   }
+
+   private void scan(Segment segment)
+   {
+      ByteBuffer buffer = segment.buffer;
+      int position = 0;
+      while (position + LENGTH_SIZE + HEADER_SIZE <= buffer.capacity())
+      {
+         int length = buffer.getInt(position);
+         if (length < HEADER_SIZE || position + LENGTH_SIZE + length > buffer.capacity())
+         {
+            break;
+         }
+         if (buffer.get(position + LENGTH_SIZE) == PENDING)
+         {
+            segment.pending++;
+         }
+         nextSequence = Math.max(nextSequence, buffer.getLong(position + LENGTH_SIZE + 1) + 1);
+         position += LENGTH_SIZE + length;
+      }
+      segment.writePosition = position;
+   }
+
+   /**
+    * Appends a message received now.
+    *
+    * @param address the address of the message
+    * @param body the body of the message
+    * @return the sequence of the entry
+    * @throws IOException if a new segment file can't be created
+    * @throws IllegalArgumentException if the body type is not supported, or the message does not fit in a segment
+    */
+   public long append(String address, Object body) throws IOException
+   {
+      return append(address, body, System.nanoTime());
+   }
+
+   /**
+    * Appends a message.
+    *
+    * The receive time is kept in memory only, an entry read after the journal is opened again
+    * is received when it is read.
+    *
+    * @param address the address of the message
+    * @param body the body of the message
+    * @param receivedNanos when the message was received, from System.nanoTime()
+    * @return the sequence of the entry
+    * @throws IOException if a new segment file can't be created
+    * @throws IllegalArgumentException if the body type is not supported, or the message does not fit in a segment
+    */
+   public synchronized long append(String address, Object body, long receivedNanos) throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Journal is closed: " + directory);
+      }
+      byte[] payload = encode(address, body);
+      int length = HEADER_SIZE + payload.length;
+      // keeps room for the zero length which ends the segment
+      int required = LENGTH_SIZE + length + LENGTH_SIZE;
+      if (required > segmentSize)
+      {
+         throw new IllegalArgumentException("Message of " + payload.length + " bytes does not fit in a journal segment.");
+      }
+      if (writeSegment == null || writeSegment.writePosition + required > writeSegment.buffer.capacity())
+      {
+         roll();
+      }
+      long sequence = nextSequence++;
+      MappedByteBuffer buffer = writeSegment.buffer;
+      int position = writeSegment.writePosition;
+      buffer.put(position + LENGTH_SIZE, PENDING);
+      buffer.putLong(position + LENGTH_SIZE + 1, sequence);
+      buffer.position(position + LENGTH_SIZE + HEADER_SIZE);
+      buffer.put(payload);
+      buffer.putInt(position, length);
+      writeSegment.writePosition = position + LENGTH_SIZE + length;
+      writeSegment.pending++;
+      pendingCount++;
+      this.receivedNanos.put(Long.valueOf(sequence), Long.valueOf(receivedNanos));
+      return sequence;
+   }
+
+   private void roll() throws IOException
+   {
+      long index = writeSegment == null ? 0 : writeSegment.index + 1;
+      File file = new File(directory, SEGMENT_PREFIX + index + SEGMENT_SUFFIX);
+      Segment previous = writeSegment;
+      writeSegment = new Segment(file, index, map(file, segmentSize));
+      segments.add(writeSegment);
+      if (readSegment == null)
+      {
+         readSegment = writeSegment;
+         readPosition = 0;
+      }
+      if (previous != null)
+      {
+         releaseIfDone(previous);
+      }
+   }
+
+   /**
+    * Reads the next pending entry, without moving past it.
+    *
+    * @return the message of the entry, or null if all entries are read
+    */
+   public synchronized JournaledMessage<Object> peek()
+   {
+      while (!closed && !requeued.isEmpty())
+      {
+         JournaledMessage<Object> message = requeued.peekFirst();
+         if (isPending(message))
+         {
+            return message;
+         }
+         // completed since it was handed back
+         requeued.pollFirst();
+      }
+      while (!closed && readSegment != null)
+      {
+         if (readPosition < readSegment.writePosition)
+         {
+            ByteBuffer buffer = readSegment.buffer;
+            int length = buffer.getInt(readPosition);
+            if (buffer.get(readPosition + LENGTH_SIZE) == PENDING)
+            {
+               long sequence = buffer.getLong(readPosition + LENGTH_SIZE + 1);
+               try
+               {
+                  Long received = receivedNanos.get(Long.valueOf(sequence));
+                  return decode(readSegment, readPosition, sequence, length - HEADER_SIZE,
+                     received == null ? System.nanoTime() : received.longValue());
+               }
+               catch (RuntimeException e)
+               {
+                  // a broken entry would block all the entries after it
+                  log.log(Level.SEVERE, "Skips the journal entry " + sequence + " which can't be read.", e);
+                  buffer.put(readPosition + LENGTH_SIZE, COMPLETED);
+                  readSegment.pending--;
+                  pendingCount--;
+                  receivedNanos.remove(Long.valueOf(sequence));
+               }
+            }
+            readPosition += LENGTH_SIZE + length;
+            continue;
+         }
+         if (readSegment == writeSegment)
+         {
+            return null;
+         }
+         Segment read = readSegment;
+         readSegment = segments.get(segments.indexOf(read) + 1);
+         readPosition = 0;
+         releaseIfDone(read);
+      }
+      return null;
+   }
+
+   /**
+    * Moves past the entry returned by the last peek.
+    *
+    * @param message the message returned by peek
+    */
+   public synchronized void advance(JournaledMessage<?> message)
+   {
+      if (!requeued.isEmpty() && requeued.peekFirst() == message)
+      {
+         requeued.pollFirst();
+         return;
+      }
+      if (message.segment == readSegment && message.position == readPosition)
+      {
+         readPosition += LENGTH_SIZE + readSegment.buffer.getInt(readPosition);
+      }
+   }
+
+   /**
+    * Hands back a message read and advanced past, which could not be delivered, it is read again by peek
+    * before the next entries. The messages handed back are read in the order they are handed back.
+    *
+    * @param message the message
+    */
+   @SuppressWarnings("unchecked")
+   public synchronized void requeue(JournaledMessage<?> message)
+   {
+      if (closed || !isPending(message))
+      {
+         return;
+      }
+      // the entries are decoded as JournaledMessage<Object>
+      requeued.addLast((JournaledMessage<Object>)message);
+   }
+
+   /**
+    * Marks the entry of the message completed, it will not be read again.
+    *
+    * @param message the message
+    */
+   public synchronized void complete(JournaledMessage<?> message)
+   {
+      Segment segment = message.segment;
+      if (closed || !isPending(message))
+      {
+         return;
+      }
+      segment.buffer.put(message.position + LENGTH_SIZE, COMPLETED);
+      segment.pending--;
+      pendingCount--;
+      receivedNanos.remove(Long.valueOf(message.getSequence()));
+      releaseIfDone(segment);
+   }
+
+   /**
+    * @return true if the entry of the message is not completed, its segment is released once all its entries are
+    */
+   private static boolean isPending(JournaledMessage<?> message)
+   {
+      return !message.segment.released && message.segment.buffer.get(message.position + LENGTH_SIZE) == PENDING;
+   }
+
+   private void releaseIfDone(Segment segment)
+   {
+      if (segment.pending == 0 && segment != writeSegment && segment != readSegment && segments.remove(segment))
+      {
+         segment.release();
+      }
+   }
+
+   /**
+    * @return number of entries not completed yet
+    */
+   public synchronized int getPendingCount()
+   {
+      return pendingCount;
+   }
+
+   /**
+    * @return the directory of the journal
+    */
+   public File getDirectory()
+   {
+      return directory;
+   }
+
+   /**
+    * Closes the journal, the pending entries are read again when the journal is opened next time.
+    */
+   public synchronized void close()
+   {
+      if (closed)
+      {
+         return;
+      }
+      closed = true;
+      requeued.clear();
+      receivedNanos.clear();
+      for (Segment segment: segments)
+      {
+         segment.unmap();
+      }
+      segments.clear();
+      writeSegment = null;
+      readSegment = null;
+      try
+      {
+         lock.release();
+         lockFile.close();
+      }
+      catch (IOException e)
+      {
+         log.log(Level.WARNING, "Can't release the lock of the journal directory: " + directory, e);
+      }
+   }
+
+   private static MappedByteBuffer map(File file, int size) throws IOException
+   {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try
+      {
+         // the mapping stays valid once the channel is closed
+         return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+      finally
+      {
+         raf.close();
+      }
+   }
+
+   private static long segmentIndex(File file)
+   {
+      String name = file.getName();
+      try
+      {
+         return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+      }
+      catch (NumberFormatException e)
+      {
+         return -1;
+      }
+   }
+
+   private static byte[] encode(String address, Object body) throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeUTF(address);
+      if (body == null)
+      {
+         out.writeByte(TYPE_NULL);
+      }
+      else if (body instanceof String)
+      {
+         out.writeByte(TYPE_STRING);
+         writeBytes(out, ((String)body).getBytes("UTF-8"));
+      }
+      else if (body instanceof Buffer)
+      {
+         out.writeByte(TYPE_BUFFER);
+         writeBytes(out, ((Buffer)body).getBytes());
+      }
+      else if (body instanceof byte[])
+      {
+         out.writeByte(TYPE_BYTES);
+         writeBytes(out, (byte[])body);
+      }
+      else if (body instanceof JsonObject)
+      {
+         out.writeByte(TYPE_JSON_OBJECT);
+         writeBytes(out, ((JsonObject)body).encode().getBytes("UTF-8"));
+      }
+      else if (body instanceof JsonArray)
+      {
+         out.writeByte(TYPE_JSON_ARRAY);
+         writeBytes(out, ((JsonArray)body).encode().getBytes("UTF-8"));
+      }
+      else if (body instanceof Boolean)
+      {
+         out.writeByte(TYPE_BOOLEAN);
+         out.writeBoolean(((Boolean)body).booleanValue());
+      }
+      else if (body instanceof Byte)
+      {
+         out.writeByte(TYPE_BYTE);
+         out.writeByte(((Byte)body).byteValue());
+      }
+      else if (body instanceof Short)
+      {
+         out.writeByte(TYPE_SHORT);
+         out.writeShort(((Short)body).shortValue());
+      }
+      else if (body instanceof Integer)
+      {
+         out.writeByte(TYPE_INTEGER);
+         out.writeInt(((Integer)body).intValue());
+      }
+      else if (body instanceof Long)
+      {
+         out.writeByte(TYPE_LONG);
+         out.writeLong(((Long)body).longValue());
+      }
+      else if (body instanceof Float)
+      {
+         out.writeByte(TYPE_FLOAT);
+         out.writeFloat(((Float)body).floatValue());
+      }
+      else if (body instanceof Double)
+      {
+         out.writeByte(TYPE_DOUBLE);
+         out.writeDouble(((Double)body).doubleValue());
+      }
+      else if (body instanceof Character)
+      {
+         out.writeByte(TYPE_CHARACTER);
+         out.writeChar(((Character)body).charValue());
+      }
+      else
+      {
+         throw new IllegalArgumentException("Message body of type " + body.getClass().getName() + " can't be journaled.");
+      }
+      out.flush();
+      return bytes.toByteArray();
+   }
+
+   private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException
+   {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private static JournaledMessage<Object> decode(Segment segment, int position, long sequence, int payloadLength,
+      long receivedNanos)
+   {
+      byte[] payload = new byte[payloadLength];
+      ByteBuffer buffer = segment.buffer.duplicate();
+      buffer.position(position + LENGTH_SIZE + HEADER_SIZE);
+      buffer.get(payload);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+      try
+      {
+         String address = in.readUTF();
+         Object body;
+         byte type = in.readByte();
+         switch (type)
+         {
+            case TYPE_NULL:
+               body = null;
+               break;
+            case TYPE_STRING:
+               body = new String(readBytes(in), "UTF-8");
+               break;
+            case TYPE_BUFFER:
+               body = new Buffer(readBytes(in));
+               break;
+            case TYPE_BYTES:
+               body = readBytes(in);
+               break;
+            case TYPE_JSON_OBJECT:
+               body = new JsonObject(new String(readBytes(in), "UTF-8"));
+               break;
+            case TYPE_JSON_ARRAY:
+               body = new JsonArray(new String(readBytes(in), "UTF-8"));
+               break;
+            case TYPE_BOOLEAN:
+               body = Boolean.valueOf(in.readBoolean());
+               break;
+            case TYPE_BYTE:
+               body = Byte.valueOf(in.readByte());
+               break;
+            case TYPE_SHORT:
+               body = Short.valueOf(in.readShort());
+               break;
+            case TYPE_INTEGER:
+               body = Integer.valueOf(in.readInt());
+               break;
+            case TYPE_LONG:
+               body = Long.valueOf(in.readLong());
+               break;
+            case TYPE_FLOAT:
+               body = Float.valueOf(in.readFloat());
+               break;
+            case TYPE_DOUBLE:
+               body = Double.valueOf(in.readDouble());
+               break;
+            case TYPE_CHARACTER:
+               body = Character.valueOf(in.readChar());
+               break;
+            default:
+               throw new IllegalStateException("Unknown body type " + type + " of journal entry " + sequence);
+         }
+         return new JournaledMessage<Object>(sequence, address, body, segment, position, receivedNanos);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Can't read journal entry " + sequence, e);
+      }
+   }
+
+   private static byte[] readBytes(DataInputStream in) throws IOException
+   {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return bytes;
+   }
+
+   /**
+    * A segment file of the journal.
+    */
+   static class Segment
+   {
+
+      private final File file;
+
+      private final long index;
+
+      private final MappedByteBuffer buffer;
+
+      /** Position after the last entry **/
+      private int writePosition;
+
+      /** Number of entries not completed yet **/
+      private int pending;
+
+      /** Whether the buffer is unmapped, guarded by the journal **/
+      private boolean released;
+
+      private Segment(File file, long index, MappedByteBuffer buffer)
+      {
+         this.file = file;
+         this.index = index;
+         this.buffer = buffer;
+      }
+
+      /**
+       * Unmaps the segment and deletes its file, its entries are all completed.
+       */
+      private void release()
+      {
+         unmap();
+         if (!file.delete())
+         {
+            log.log(Level.WARNING, "Can't delete the completed journal segment: " + file);
+         }
+      }
+
+      private void unmap()
+      {
+         if (released)
+         {
+            return;
+         }
+         released = true;
+         Unmapper.unmap(buffer);
+      }
+   }
+
+   /**
+    * Unmaps a MappedByteBuffer at once, instead of when it is garbage collected, which the JDK has no public API for.
+    * Where neither way is available, the mapping is left to the garbage collector.
+    */
+   private static class Unmapper
+   {
+
+      /** Unsafe.invokeCleaner(ByteBuffer) of Java 9 and later **/
+      private static final Method INVOKE_CLEANER;
+
+      private static final Object UNSAFE;
+
+      static
+      {
+         Method invokeCleaner = null;
+         Object unsafe = null;
+         try
+         {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+         }
+         catch (Exception e)
+         {
+            // Java 7 and 8 use the cleaner of the buffer
+            invokeCleaner = null;
+         }
+         INVOKE_CLEANER = invokeCleaner;
+         UNSAFE = unsafe;
+      }
+
+      private static void unmap(MappedByteBuffer buffer)
+      {
+         try
+         {
+            if (INVOKE_CLEANER != null)
+            {
+               INVOKE_CLEANER.invoke(UNSAFE, buffer);
+               return;
+            }
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null)
+            {
+               cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+         }
+         catch (Exception e)
+         {
+            log.log(Level.FINE, "Can't unmap the journal segment, it is unmapped when it is garbage collected.", e);
+         }
+      }
+   }
+
+}
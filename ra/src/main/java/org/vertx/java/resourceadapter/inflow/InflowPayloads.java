@@ -0,0 +1,51 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.nio.ByteBuffer;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * InflowPayloads gives an endpoint access to a binary message body without copying it.
+ *
+ * <code>Buffer.getBytes()</code> copies the whole payload to a new array, which for a payload of several megabytes
+ * costs as much as parsing it. The view returned here shares the memory of the Buffer, or of the byte[], and can be
+ * handed straight to a parser reading a <code>ByteBuffer</code>.
+ *
+ */
+public class InflowPayloads
+{
+
+   private InflowPayloads()
+   {
+   }
+
+   /**
+    * Gets a read-only view of a Buffer or byte[] body, from its first readable byte to its last one.
+    *
+    * The view is only valid while the message is handled, and shares the content of the body: it sees any
+    * later change of the Buffer. A Buffer made of several Netty components is merged in a copy, the Buffers of the
+    * received messages are made of one.
+    *
+    * @param message the message
+    * @return the view of the body, or null if the body is neither a Buffer nor a byte[]
+    */
+   public static ByteBuffer asByteBuffer(Message<?> message)
+   {
+      Object body = message.body();
+      if (body instanceof Buffer)
+      {
+         // getByteBuf duplicates the indexes of the Netty buffer, not its content
+         return ((Buffer)body).getByteBuf().nioBuffer().asReadOnlyBuffer();
+      }
+      if (body instanceof byte[])
+      {
+         return ByteBuffer.wrap((byte[])body).asReadOnlyBuffer();
+      }
+      return null;
+   }
+
+}
@@ -0,0 +1,281 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * InflowStatistics records the inflow latencies of one address, and exposes them by JMX as
+ * <code>org.vertx.java.resourceadapter:type=InflowStatistics,address="the-address"</code>.
+ * 
+ * The activations listening on the same address share one InflowStatistics, it is unregistered from JMX
+ * when the last of them releases it.
+ *
+ */
+public class InflowStatistics implements InflowStatisticsMBean
+{
+
+   private static Logger log = Logger.getLogger(InflowStatistics.class.getName());
+
+   private static final String DOMAIN = "org.vertx.java.resourceadapter";
+
+   /** All statistics by address, guarded by itself **/
+   private static final Map<String, InflowStatistics> STATISTICS = new HashMap<String, InflowStatistics>();
+
+   private final String address;
+
+   private final LatencyHistogram queueWait = new LatencyHistogram();
+
+   private final LatencyHistogram handlerTime = new LatencyHistogram();
+
+   private final AtomicLong filtered = new AtomicLong();
+
+   private final AtomicLong conflated = new AtomicLong();
+
+   private final AtomicLong expired = new AtomicLong();
+
+   private volatile String activationFailure;
+
+   /** Number of activations using it, guarded by STATISTICS **/
+   private int references;
+
+   private ObjectName objectName;
+
+   private InflowStatistics(String address)
+   {
+      this.address = address;
+   }
+
+   /**
+    * Gets the statistics of an address, creates and registers it to JMX if it does not exist.
+    * 
+    * @param address the address
+    * @return the InflowStatistics
+    */
+   public static InflowStatistics acquire(String address)
+   {
+      synchronized (STATISTICS)
+      {
+         InflowStatistics statistics = STATISTICS.get(address);
+         if (statistics == null)
+         {
+            statistics = new InflowStatistics(address);
+            statistics.register();
+            STATISTICS.put(address, statistics);
+         }
+         statistics.references++;
+         return statistics;
+      }
+   }
+
+   /**
+    * Releases the statistics, unregisters it from JMX if no activation uses it anymore.
+    */
+   public void release()
+   {
+      synchronized (STATISTICS)
+      {
+         if (--references > 0)
+         {
+            return;
+         }
+         STATISTICS.remove(address);
+         unregister();
+      }
+   }
+
+   private void register()
+   {
+      try
+      {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = new ObjectName(DOMAIN + ":type=InflowStatistics,address=" + ObjectName.quote(address));
+         server.registerMBean(this, name);
+         this.objectName = name;
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't register the inflow statistics of address: " + address, e);
+      }
+   }
+
+   private void unregister()
+   {
+      if (this.objectName == null)
+      {
+         return;
+      }
+      try
+      {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't unregister the inflow statistics of address: " + address, e);
+      }
+      this.objectName = null;
+   }
+
+   /**
+    * Records one delivery.
+    * 
+    * @param queueWaitNanos nanoseconds from receiving to the work start
+    * @param handlerNanos nanoseconds the endpoint took
+    */
+   public void recordDelivery(long queueWaitNanos, long handlerNanos)
+   {
+      queueWait.record(TimeUnit.NANOSECONDS.toMicros(queueWaitNanos));
+      handlerTime.record(TimeUnit.NANOSECONDS.toMicros(handlerNanos));
+   }
+
+   /**
+    * Records one message dropped by the message filter.
+    */
+   public void recordFiltered()
+   {
+      filtered.incrementAndGet();
+   }
+
+   /**
+    * Records one queued message superseded by a newer one with the same conflation key.
+    */
+   public void recordConflated()
+   {
+      conflated.incrementAndGet();
+   }
+
+   /**
+    * Records one message dropped because its deadline passed before its delivery.
+    */
+   public void recordExpired()
+   {
+      expired.incrementAndGet();
+   }
+
+   /**
+    * Records the cause which failed an activation on the address.
+    * 
+    * @param cause the cause, null to clear it
+    */
+   public void recordActivationFailure(String cause)
+   {
+      activationFailure = cause;
+   }
+
+   @Override
+   public String getAddress()
+   {
+      return address;
+   }
+
+   @Override
+   public long getDeliveryCount()
+   {
+      return handlerTime.getCount();
+   }
+
+   @Override
+   public long getFilteredCount()
+   {
+      return filtered.get();
+   }
+
+   @Override
+   public long getConflatedCount()
+   {
+      return conflated.get();
+   }
+
+   @Override
+   public long getExpiredCount()
+   {
+      return expired.get();
+   }
+
+   @Override
+   public String getActivationFailure()
+   {
+      return activationFailure;
+   }
+
+   @Override
+   public double getQueueWaitMeanMicros()
+   {
+      return queueWait.getMean();
+   }
+
+   @Override
+   public long getQueueWait50thPercentileMicros()
+   {
+      return queueWait.getValueAtPercentile(50d);
+   }
+
+   @Override
+   public long getQueueWait99thPercentileMicros()
+   {
+      return queueWait.getValueAtPercentile(99d);
+   }
+
+   @Override
+   public long getQueueWait999thPercentileMicros()
+   {
+      return queueWait.getValueAtPercentile(99.9d);
+   }
+
+   @Override
+   public long getQueueWaitMaxMicros()
+   {
+      return queueWait.getMax();
+   }
+
+   @Override
+   public double getHandlerTimeMeanMicros()
+   {
+      return handlerTime.getMean();
+   }
+
+   @Override
+   public long getHandlerTime50thPercentileMicros()
+   {
+      return handlerTime.getValueAtPercentile(50d);
+   }
+
+   @Override
+   public long getHandlerTime99thPercentileMicros()
+   {
+      return handlerTime.getValueAtPercentile(99d);
+   }
+
+   @Override
+   public long getHandlerTime999thPercentileMicros()
+   {
+      return handlerTime.getValueAtPercentile(99.9d);
+   }
+
+   @Override
+   public long getHandlerTimeMaxMicros()
+   {
+      return handlerTime.getMax();
+   }
+
+   @Override
+   public void reset()
+   {
+      queueWait.reset();
+      handlerTime.reset();
+      filtered.set(0);
+      conflated.set(0);
+      expired.set(0);
+   }
+
+}
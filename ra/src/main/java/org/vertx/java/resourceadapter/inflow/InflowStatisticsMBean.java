@@ -0,0 +1,71 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+/**
+ * JMX view of the inflow latencies of one address.
+ * 
+ * The queue wait is the time from when a message is received on the event loop to when its work starts,
+ * the handler time is the time the endpoint takes to handle it. Times are in microseconds.
+ *
+ */
+public interface InflowStatisticsMBean
+{
+
+   /**
+    * @return the address
+    */
+   String getAddress();
+
+   /**
+    * @return number of deliveries to the endpoint
+    */
+   long getDeliveryCount();
+
+   /**
+    * @return number of messages dropped by the message filter
+    */
+   long getFilteredCount();
+
+   /**
+    * @return number of queued messages superseded by a newer one with the same conflation key
+    */
+   long getConflatedCount();
+
+   /**
+    * @return number of messages dropped because their deadline passed before their delivery
+    */
+   long getExpiredCount();
+
+   /**
+    * @return the cause which failed an activation on the address, so it consumes no message, null if none failed
+    */
+   String getActivationFailure();
+
+   double getQueueWaitMeanMicros();
+
+   long getQueueWait50thPercentileMicros();
+
+   long getQueueWait99thPercentileMicros();
+
+   long getQueueWait999thPercentileMicros();
+
+   long getQueueWaitMaxMicros();
+
+   double getHandlerTimeMeanMicros();
+
+   long getHandlerTime50thPercentileMicros();
+
+   long getHandlerTime99thPercentileMicros();
+
+   long getHandlerTime999thPercentileMicros();
+
+   long getHandlerTimeMaxMicros();
+
+   /**
+    * Clears the recorded latencies.
+    */
+   void reset();
+
+}
@@ -0,0 +1,358 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
+import org.vertx.java.core.impl.DefaultFutureResult;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * JournaledMessage is a message read back from the InflowJournal, which is delivered to the endpoint.
+ * 
+ * The sender was acknowledged with the journal sequence when the message was appended, and the message
+ * may be delivered after a restart, so the replies of the endpoint are dropped. A reply which waits for an answer
+ * with a timeout gets a failure at once, so the endpoint does not wait for an answer which never comes.
+ *
+ */
+public class JournaledMessage<T> implements Message<T>
+{
+
+   private static Logger log = Logger.getLogger(JournaledMessage.class.getName());
+
+   private final long sequence;
+
+   private final String address;
+
+   private final T body;
+
+   /** The segment and position of the journal entry */
+   final InflowJournal.Segment segment;
+
+   final int position;
+
+   /** When the message was received, from System.nanoTime() */
+   final long receivedNanos;
+
+   JournaledMessage(long sequence, String address, T body, InflowJournal.Segment segment, int position, long receivedNanos)
+   {
+      this.sequence = sequence;
+      this.address = address;
+      this.body = body;
+      this.segment = segment;
+      this.position = position;
+      this.receivedNanos = receivedNanos;
+   }
+
+   /**
+    * @return the sequence of the journal entry
+    */
+   public long getSequence()
+   {
+      return sequence;
+   }
+
+   @Override
+   public String address()
+   {
+      return address;
+   }
+
+   @Override
+   public T body()
+   {
+      return body;
+   }
+
+   @Override
+   public String replyAddress()
+   {
+      return null;
+   }
+
+   @Override
+   public void fail(int failureCode, String message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply()
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Object message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(JsonObject message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(JsonArray message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(String message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Buffer message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(byte[] message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Integer message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Long message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Short message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Character message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Boolean message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Float message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public void reply(Double message)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void reply(Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Object message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Object message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(JsonObject message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(JsonObject message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(JsonArray message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(JsonArray message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(String message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(String message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Buffer message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Buffer message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(byte[] message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(byte[] message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Integer message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Integer message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Long message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Long message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Short message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Short message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Character message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Character message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Boolean message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Boolean message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Float message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Float message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   @Override
+   public <R> void reply(Double message, Handler<Message<R>> replyHandler)
+   {
+      replyDropped();
+   }
+
+   @Override
+   public <R> void replyWithTimeout(Double message, long timeout, Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyFailed(replyHandler);
+   }
+
+   /**
+    * Fails the reply handler at once, called on the thread of the endpoint.
+    */
+   private <R> void replyFailed(Handler<AsyncResult<Message<R>>> replyHandler)
+   {
+      replyDropped();
+      if (replyHandler != null)
+      {
+         replyHandler.handle(new DefaultFutureResult<Message<R>>(new ReplyException(ReplyFailure.NO_HANDLERS,
+            "The journaled message " + sequence + " on address: " + address + " can't be replied.")));
+      }
+   }
+
+   private void replyDropped()
+   {
+      log.log(Level.FINE, "The journaled message " + sequence + " on address: " + address + " can't be replied, reply is dropped.");
+   }
+
+}
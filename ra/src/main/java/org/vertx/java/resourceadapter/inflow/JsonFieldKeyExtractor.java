@@ -0,0 +1,76 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * JsonFieldKeyExtractor uses a field of a JsonObject body as the key.
+ * 
+ * The field is specified by a dot separated path, like: <code>order.customerId</code>.
+ * A JSON object sent as text in a Buffer, byte[] or String body is read with {@link LazyJsonBody}, which only
+ * tokenizes it up to the field.
+ * Messages whose body is not a JSON object, or does not have the field, have no key.
+ *
+ */
+public class JsonFieldKeyExtractor implements KeyExtractor
+{
+
+   private final String[] path;
+
+   /**
+    * Constructor
+    * 
+    * @param fieldPath the dot separated path of the field
+    */
+   public JsonFieldKeyExtractor(String fieldPath)
+   {
+      if (fieldPath == null || fieldPath.trim().length() == 0)
+      {
+         throw new IllegalArgumentException("Field path can't be empty.");
+      }
+      this.path = fieldPath.trim().split("\\.");
+   }
+
+   @Override
+   public Object extractKey(Message<?> message)
+   {
+      Object body = message.body();
+      if (!(body instanceof JsonObject))
+      {
+         return extractLazily(body);
+      }
+      JsonObject json = (JsonObject)body;
+      for (int i = 0; i < path.length - 1; i++)
+      {
+         Object field = json.getValue(path[i]);
+         if (!(field instanceof JsonObject))
+         {
+            return null;
+         }
+         json = (JsonObject)field;
+      }
+      return json.getValue(path[path.length - 1]);
+   }
+
+   private Object extractLazily(Object body)
+   {
+      LazyJsonBody json = LazyJsonBody.of(body);
+      if (json == null)
+      {
+         return null;
+      }
+      try
+      {
+         return json.getValue(path);
+      }
+      catch (IllegalArgumentException e)
+      {
+         // not JSON after all
+         return null;
+      }
+   }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * JsonSelectorMessageFilter accepts the messages whose JSON object body matches a selector.
+ * 
+ * The selector is one or more conditions joined by <code>&amp;&amp;</code>, each condition compares a dot separated
+ * field path to a literal with <code>==</code> or <code>!=</code>, like: <code>order.type == 'refund' &amp;&amp; order.priority != 0</code>.
+ * 
+ * A literal is a quoted string, a number, <code>true</code>, <code>false</code> or <code>null</code>.
+ * The operators and <code>&amp;&amp;</code> inside a quoted string are part of the string.
+ * A missing field, or a body which is not a JSON object, compares as <code>null</code>. A JSON object sent as text
+ * in a Buffer, byte[] or String body is only tokenized up to the fields of the conditions.
+ *
+ */
+public class JsonSelectorMessageFilter implements MessageFilter
+{
+
+   private static final String AND = "&&";
+
+   private final List<Condition> conditions = new ArrayList<Condition>();
+
+   /**
+    * Constructor
+    * 
+    * @param selector the selector
+    * @throws IllegalArgumentException if the selector can't be parsed
+    */
+   public JsonSelectorMessageFilter(String selector)
+   {
+      if (selector == null || selector.trim().length() == 0)
+      {
+         throw new IllegalArgumentException("Selector can't be empty.");
+      }
+      int start = 0;
+      while (true)
+      {
+         int end = indexOfUnquoted(selector, AND, start);
+         if (end == -1)
+         {
+            conditions.add(parseCondition(selector.substring(start)));
+            return;
+         }
+         conditions.add(parseCondition(selector.substring(start, end)));
+         start = end + AND.length();
+      }
+   }
+
+   @Override
+   public boolean accept(Message<?> message)
+   {
+      for (int i = 0; i < conditions.size(); i++)
+      {
+         if (!conditions.get(i).matches(message))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static Condition parseCondition(String condition)
+   {
+      int equalOperator = indexOfUnquoted(condition, "==", 0);
+      int notEqualOperator = indexOfUnquoted(condition, "!=", 0);
+      // the first operator splits the condition, a second one is left in the literal and rejected there
+      boolean equal = notEqualOperator == -1 || equalOperator != -1 && equalOperator < notEqualOperator;
+      int operator = equal ? equalOperator : notEqualOperator;
+      if (operator == -1)
+      {
+         throw new IllegalArgumentException("Condition must be like 'field == value' or 'field != value': " + condition.trim());
+      }
+      String field = condition.substring(0, operator).trim();
+      if (field.length() == 0)
+      {
+         throw new IllegalArgumentException("Field path can't be empty: " + condition.trim());
+      }
+      return new Condition(new JsonFieldKeyExtractor(field), equal, parseLiteral(condition.substring(operator + 2).trim()));
+   }
+
+   /**
+    * @return the index of the first token outside the quoted strings, -1 if there is none
+    * @throws IllegalArgumentException if a quoted string is not terminated
+    */
+   private static int indexOfUnquoted(String text, String token, int from)
+   {
+      char quote = 0;
+      for (int i = from; i < text.length(); i++)
+      {
+         char c = text.charAt(i);
+         if (quote != 0)
+         {
+            if (c == quote)
+            {
+               quote = 0;
+            }
+         }
+         else if (c == '\'' || c == '"')
+         {
+            quote = c;
+         }
+         else if (text.startsWith(token, i))
+         {
+            return i;
+         }
+      }
+      if (quote != 0)
+      {
+         throw new IllegalArgumentException("String literal is not terminated: " + text.substring(from).trim());
+      }
+      return -1;
+   }
+
+   private static Object parseLiteral(String literal)
+   {
+      if (literal.length() >= 2 && (literal.charAt(0) == '\'' || literal.charAt(0) == '"'))
+      {
+         if (literal.indexOf(literal.charAt(0), 1) != literal.length() - 1)
+         {
+            throw new IllegalArgumentException("Invalid literal, only one quoted string is expected: " + literal);
+         }
+         return literal.substring(1, literal.length() - 1);
+      }
+      if ("true".equals(literal) || "false".equals(literal))
+      {
+         return Boolean.valueOf(literal);
+      }
+      if ("null".equals(literal))
+      {
+         return null;
+      }
+      try
+      {
+         if (literal.indexOf('.') != -1 || literal.indexOf('e') != -1 || literal.indexOf('E') != -1)
+         {
+            return Double.valueOf(literal);
+         }
+         return Long.valueOf(literal);
+      }
+      catch (NumberFormatException e)
+      {
+         throw new IllegalArgumentException("Invalid literal, strings need to be quoted: " + literal);
+      }
+   }
+
+   private static class Condition
+   {
+
+      private final JsonFieldKeyExtractor field;
+
+      private final boolean equal;
+
+      private final Object literal;
+
+      private Condition(JsonFieldKeyExtractor field, boolean equal, Object literal)
+      {
+         this.field = field;
+         this.equal = equal;
+         this.literal = literal;
+      }
+
+      private boolean matches(Message<?> message)
+      {
+         return valueEquals(field.extractKey(message)) == equal;
+      }
+
+      private boolean valueEquals(Object value)
+      {
+         if (value == null || literal == null)
+         {
+            return value == literal;
+         }
+         if (value instanceof Number && literal instanceof Number)
+         {
+            return ((Number)value).doubleValue() == ((Number)literal).doubleValue();
+         }
+         return value.equals(literal);
+      }
+   }
+
+}
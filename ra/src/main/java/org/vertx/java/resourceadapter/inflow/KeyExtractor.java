@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * KeyExtractor extracts the ordering key of a message.
+ * 
+ * Messages with equal keys are delivered one after another in the order they are received,
+ * messages with different keys may be delivered in parallel.
+ * 
+ * Implementations need a public no-arg constructor, and are called on the Vert.x event loop so they must not block.
+ *
+ */
+public interface KeyExtractor
+{
+
+   /**
+    * Extracts the key of the message.
+    * 
+    * @param message the received message
+    * @return the key, or null if the message has no ordering requirement.
+    */
+   Object extractKey(Message<?> message);
+
+}
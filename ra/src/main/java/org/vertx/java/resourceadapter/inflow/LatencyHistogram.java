@@ -0,0 +1,152 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram is a lock free, fixed size histogram of latencies, in the spirit of HdrHistogram.
+ * 
+ * Values below 64 are counted exactly, larger values are counted in log-linear buckets:
+ * each power of two range is split into 32 buckets, so a percentile is reported within about 3% of the recorded value.
+ * Recording never allocates, so it can be used on the delivery path.
+ *
+ */
+public class LatencyHistogram
+{
+
+   private static final int SUB_BUCKET_BITS = 5;
+
+   private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+   /** Values below it have their own bucket **/
+   private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+   /** Enough buckets for any positive long **/
+   private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+   private final AtomicLong totalCount = new AtomicLong();
+
+   private final AtomicLong totalValue = new AtomicLong();
+
+   private final AtomicLong maxValue = new AtomicLong();
+
+   /**
+    * Records a value, negative values are recorded as 0.
+    * 
+    * @param value the value
+    */
+   public void record(long value)
+   {
+      if (value < 0)
+      {
+         value = 0;
+      }
+      counts.incrementAndGet(bucketOf(value));
+      totalCount.incrementAndGet();
+      totalValue.addAndGet(value);
+      long max = maxValue.get();
+      while (value > max && !maxValue.compareAndSet(max, value))
+      {
+         max = maxValue.get();
+      }
+   }
+
+   static int bucketOf(long value)
+   {
+      if (value < LINEAR_LIMIT)
+      {
+         return (int)value;
+      }
+      int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+      int top = (int)(value >>> shift);
+      return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (top - SUB_BUCKET_COUNT);
+   }
+
+   static long highestValueOf(int bucket)
+   {
+      if (bucket < LINEAR_LIMIT)
+      {
+         return bucket;
+      }
+      int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+      long top = (bucket - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+      return ((top + 1) << shift) - 1;
+   }
+
+   /**
+    * @return number of recorded values
+    */
+   public long getCount()
+   {
+      return totalCount.get();
+   }
+
+   /**
+    * @return the largest recorded value
+    */
+   public long getMax()
+   {
+      return maxValue.get();
+   }
+
+   /**
+    * @return the mean of the recorded values, 0 if nothing is recorded
+    */
+   public double getMean()
+   {
+      long count = totalCount.get();
+      return count == 0 ? 0 : (double)totalValue.get() / count;
+   }
+
+   /**
+    * Gets the value at a percentile, as the highest value of the bucket the percentile falls in.
+    * 
+    * @param percentile the percentile, from 0 to 100
+    * @return the value, 0 if nothing is recorded
+    */
+   public long getValueAtPercentile(double percentile)
+   {
+      long count = totalCount.get();
+      if (count == 0)
+      {
+         return 0;
+      }
+      long rank = (long)Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * count);
+      if (rank < 1)
+      {
+         rank = 1;
+      }
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+         seen += counts.get(i);
+         if (seen >= rank)
+         {
+            return Math.min(highestValueOf(i), maxValue.get());
+         }
+      }
+      return maxValue.get();
+   }
+
+   /**
+    * Clears the recorded values.
+    * 
+    * Values recorded while resetting may be partially cleared.
+    */
+   public void reset()
+   {
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+         counts.set(i, 0);
+      }
+      totalCount.set(0);
+      totalValue.set(0);
+      maxValue.set(0);
+   }
+
+}
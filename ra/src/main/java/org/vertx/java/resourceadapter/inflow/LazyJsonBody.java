@@ -0,0 +1,208 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * LazyJsonBody reads fields of a JSON object sent as text, in a Buffer, byte[] or String body, without decoding the whole document.
+ *
+ * A JsonObject body is decoded by Vert.x into a map tree as soon as the message is received, even when the endpoint
+ * reads two of its fields. A sender which encodes the document itself and sends it as a Buffer lets the receiver
+ * decide: each lookup tokenizes the text up to the requested field and skips the content of the other fields
+ * without building them, only the value of the requested field is decoded.
+ *
+ * Each lookup starts from the beginning of the document, an endpoint reading many fields of the same message
+ * is better off decoding it once with <code>new JsonObject(...)</code>.
+ *
+ */
+public class LazyJsonBody
+{
+
+   private static final JsonFactory FACTORY = new JsonFactory();
+
+   /** Decodes the object and array values, shared as it is thread safe once configured **/
+   private static final ObjectMapper MAPPER = new ObjectMapper(FACTORY);
+
+   private final Object body;
+
+   private LazyJsonBody(Object body)
+   {
+      this.body = body;
+   }
+
+   /**
+    * @param message the message
+    * @return the lazy view of the body, or null if the body is not a Buffer, byte[] or String starting with a JSON object
+    */
+   public static LazyJsonBody of(Message<?> message)
+   {
+      return of(message.body());
+   }
+
+   static LazyJsonBody of(Object body)
+   {
+      int first = -1;
+      if (body instanceof Buffer)
+      {
+         ByteBuf buf = ((Buffer)body).getByteBuf();
+         first = firstByte(buf, buf.readerIndex(), buf.writerIndex());
+      }
+      else if (body instanceof byte[])
+      {
+         byte[] bytes = (byte[])body;
+         for (int i = 0; i < bytes.length && first == -1; i++)
+         {
+            first = isWhitespace(bytes[i]) ? -1 : bytes[i];
+         }
+      }
+      else if (body instanceof String)
+      {
+         String text = (String)body;
+         for (int i = 0; i < text.length() && first == -1; i++)
+         {
+            first = isWhitespace(text.charAt(i)) ? -1 : text.charAt(i);
+         }
+      }
+      return first == '{' ? new LazyJsonBody(body) : null;
+   }
+
+   private static int firstByte(ByteBuf buf, int from, int to)
+   {
+      for (int i = from; i < to; i++)
+      {
+         byte b = buf.getByte(i);
+         if (!isWhitespace(b))
+         {
+            return b;
+         }
+      }
+      return -1;
+   }
+
+   private static boolean isWhitespace(int c)
+   {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+   }
+
+   /**
+    * Gets the value of a field.
+    *
+    * @param fieldPath the dot separated path of the field, like <code>order.customerId</code>
+    * @return the value, a JsonObject or a JsonArray for the object and array values, null if the field is missing
+    * @throws IllegalArgumentException if the body is not valid JSON up to the field
+    */
+   public Object getValue(String fieldPath)
+   {
+      return getValue(fieldPath.trim().split("\\."));
+   }
+
+   Object getValue(String[] path)
+   {
+      try
+      {
+         JsonParser parser = createParser();
+         try
+         {
+            return find(parser, path);
+         }
+         finally
+         {
+            parser.close();
+         }
+      }
+      catch (IOException e)
+      {
+         throw new IllegalArgumentException("Body is not a valid JSON object: " + e.getMessage(), e);
+      }
+   }
+
+   private JsonParser createParser() throws IOException
+   {
+      if (body instanceof Buffer)
+      {
+         ByteBuf buf = ((Buffer)body).getByteBuf();
+         if (buf.hasArray())
+         {
+            return FACTORY.createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+         }
+         return FACTORY.createParser(new ByteBufInputStream(buf));
+      }
+      if (body instanceof byte[])
+      {
+         return FACTORY.createParser((byte[])body);
+      }
+      return FACTORY.createParser((String)body);
+   }
+
+   private static Object find(JsonParser parser, String[] path) throws IOException
+   {
+      if (parser.nextToken() != JsonToken.START_OBJECT)
+      {
+         return null;
+      }
+      int depth = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME)
+      {
+         String name = parser.getCurrentName();
+         JsonToken value = parser.nextToken();
+         if (!name.equals(path[depth]))
+         {
+            // moves to the end of an object or array value without building it
+            parser.skipChildren();
+            continue;
+         }
+         if (depth == path.length - 1)
+         {
+            return readValue(parser, value);
+         }
+         if (value != JsonToken.START_OBJECT)
+         {
+            return null;
+         }
+         depth++;
+      }
+      return null;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Object readValue(JsonParser parser, JsonToken value) throws IOException
+   {
+      switch (value)
+      {
+         case VALUE_STRING:
+            return parser.getText();
+         case VALUE_NUMBER_INT:
+            return parser.getNumberValue();
+         case VALUE_NUMBER_FLOAT:
+            return Double.valueOf(parser.getDoubleValue());
+         case VALUE_TRUE:
+            return Boolean.TRUE;
+         case VALUE_FALSE:
+            return Boolean.FALSE;
+         case START_OBJECT:
+            return new JsonObject(MAPPER.readValue(parser, Map.class));
+         case START_ARRAY:
+            return new JsonArray(MAPPER.readValue(parser, List.class));
+         default:
+            return null;
+      }
+   }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+
+/**
+ * MessageBatcher groups the received messages into batches.
+ * 
+ * A batch is handed to the batch handler when it reaches <code>batchSize</code> messages,
+ * or when <code>maxLingerMillis</code> milliseconds passed since its first message, whichever comes first.
+ *
+ * @param <T> the type of the messages, so that a message can be batched along with what the caller keeps of it
+ */
+public class MessageBatcher<T>
+{
+
+   private final Vertx vertx;
+
+   private final int batchSize;
+
+   private final long maxLingerMillis;
+
+   private final Handler<List<T>> batchHandler;
+
+   private final Handler<Long> lingerHandler = new Handler<Long>()
+   {
+      @Override
+      public void handle(Long timerId)
+      {
+         lingerExpired(timerId.longValue());
+      }
+   };
+
+   /** The batch being filled, guarded by this **/
+   private List<T> batch;
+
+   /** The linger timer of the batch being filled, guarded by this **/
+   private long timerId = -1;
+
+   private boolean closed;
+
+   /**
+    * Constructor
+    * 
+    * @param vertx the Vertx used to set the linger timers
+    * @param batchSize maximum number of messages of one batch
+    * @param maxLingerMillis maximum milliseconds a batch waits to be filled
+    * @param batchHandler the handler of the completed batches
+    */
+   public MessageBatcher(Vertx vertx, int batchSize, long maxLingerMillis, Handler<List<T>> batchHandler)
+   {
+      if (batchSize < 1)
+      {
+         throw new IllegalArgumentException("batchSize must be positive.");
+      }
+      if (maxLingerMillis < 1)
+      {
+         throw new IllegalArgumentException("maxLingerMillis must be positive.");
+      }
+      this.vertx = vertx;
+      this.batchSize = batchSize;
+      this.maxLingerMillis = maxLingerMillis;
+      this.batchHandler = batchHandler;
+   }
+
+   /**
+    * Adds a message to the current batch, hands the batch over if it is full.
+    * 
+    * @param message the message
+    */
+   public void add(T message)
+   {
+      List<T> full = null;
+      synchronized (this)
+      {
+         if (closed)
+         {
+            return;
+         }
+         if (batch == null)
+         {
+            batch = new ArrayList<T>(batchSize);
+            if (batchSize > 1)
+            {
+               timerId = vertx.setTimer(maxLingerMillis, lingerHandler);
+            }
+         }
+         batch.add(message);
+         if (batch.size() >= batchSize)
+         {
+            full = takeBatch();
+         }
+      }
+      if (full != null)
+      {
+         batchHandler.handle(full);
+      }
+   }
+
+   private void lingerExpired(long expiredTimerId)
+   {
+      List<T> lingered;
+      synchronized (this)
+      {
+         if (closed || expiredTimerId != timerId)
+         {
+            return;
+         }
+         timerId = -1;
+         lingered = takeBatch();
+      }
+      if (lingered != null)
+      {
+         batchHandler.handle(lingered);
+      }
+   }
+
+   private List<T> takeBatch()
+   {
+      if (timerId != -1)
+      {
+         vertx.cancelTimer(timerId);
+         timerId = -1;
+      }
+      List<T> taken = batch;
+      batch = null;
+      return taken;
+   }
+
+   /**
+    * Closes the batcher, the messages of the batch being filled are discarded.
+    * 
+    * @return the discarded messages, in their arrival order
+    */
+   public synchronized List<T> close()
+   {
+      closed = true;
+      List<T> discarded = takeBatch();
+      if (discarded == null)
+      {
+         return new ArrayList<T>();
+      }
+      return discarded;
+   }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * MessageDeadline reads the deadline a sender puts in a field of the JsonObject body, as milliseconds since the epoch,
+ * like <code>new JsonObject().putNumber("deadline", System.currentTimeMillis() + 5000)</code>.
+ *
+ * The deadline is compared to the clock of the receiving node, so the clocks of the nodes need to be synchronized.
+ * A message without a numeric deadline field never expires.
+ *
+ */
+final class MessageDeadline
+{
+
+   /** The deadline of a message which never expires */
+   static final long NONE = Long.MAX_VALUE;
+
+   private final JsonFieldKeyExtractor field;
+
+   /**
+    * Constructor
+    *
+    * @param fieldPath the dot separated path of the deadline field
+    */
+   MessageDeadline(String fieldPath)
+   {
+      this.field = new JsonFieldKeyExtractor(fieldPath);
+   }
+
+   /**
+    * @return the deadline of the message in milliseconds since the epoch, or NONE
+    */
+   long deadline(Message<?> message)
+   {
+      Object value = field.extractKey(message);
+      if (value instanceof Number)
+      {
+         return ((Number)value).longValue();
+      }
+      return NONE;
+   }
+
+   /**
+    * @return true if the deadline passed
+    */
+   static boolean expired(long deadline)
+   {
+      return deadline != NONE && deadline < System.currentTimeMillis();
+   }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import javax.resource.spi.work.Work;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * MessageDispatcher decides when and how the inflow work of a received message is scheduled.
+ *
+ */
+public interface MessageDispatcher
+{
+
+   /**
+    * Dispatches the work delivering the message.
+    * 
+    * @param message the received message
+    * @param work the work delivering the message to the endpoint
+    * @return true if the work is scheduled or queued, false if it is rejected, the caller then owns the work.
+    */
+   boolean dispatch(Message<?> message, Work work);
+
+   /**
+    * @return number of works waiting to be scheduled
+    */
+   int getQueueSize();
+
+   /**
+    * @return number of works scheduled
+    */
+   int getActiveCount();
+
+   /**
+    * Closes the dispatcher, further works are rejected and the queued ones are released.
+    */
+   void close();
+
+}
@@ -0,0 +1,175 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.resource.spi.UnavailableException;
+import javax.resource.spi.endpoint.MessageEndpoint;
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+
+/**
+ * MessageEndpointPool keeps the MessageEndpoint instances of one activation.
+ *
+ * Each delivery leases its own endpoint, so concurrent deliveries do not share one endpoint proxy
+ * and the container can scale its MDB pool. Endpoints are created on demand up to <code>maxSize</code>,
+ * which is the number of dispatch slots of the activation, so a running delivery does not wait for an endpoint.
+ *
+ */
+public class MessageEndpointPool
+{
+
+   private static Logger log = Logger.getLogger(MessageEndpointPool.class.getName());
+
+   /** How long a lease waits for a returned endpoint before it checks whether the pool is closed **/
+   private static final long CLOSE_CHECK_MILLIS = 100;
+
+   private final MessageEndpointFactory endpointFactory;
+
+   private final int maxSize;
+
+   /** Array backed, so returning an endpoint does not allocate a queue node **/
+   private final ArrayBlockingQueue<MessageEndpoint> idle;
+
+   /** Number of endpoints created and not yet released **/
+   private final AtomicInteger created = new AtomicInteger();
+
+   private volatile boolean closed;
+
+   /**
+    * Constructor
+    *
+    * @param endpointFactory the MessageEndpointFactory
+    * @param maxSize maximum number of endpoints
+    */
+   public MessageEndpointPool(MessageEndpointFactory endpointFactory, int maxSize)
+   {
+      if (endpointFactory == null)
+      {
+         throw new IllegalArgumentException("MessageEndpointFactory can't be null.");
+      }
+      if (maxSize < 1)
+      {
+         throw new IllegalArgumentException("maxSize must be positive.");
+      }
+      this.endpointFactory = endpointFactory;
+      this.maxSize = maxSize;
+      this.idle = new ArrayBlockingQueue<MessageEndpoint>(maxSize);
+   }
+
+   /**
+    * Leases an endpoint, creates a new one if all endpoints are leased and maxSize is not reached,
+    * waits for one to be returned otherwise, until the pool is closed.
+    *
+    * @return the MessageEndpoint
+    * @throws UnavailableException if the endpoint can't be created or the pool is closed
+    * @throws InterruptedException if interrupted while waiting for an endpoint
+    */
+   public MessageEndpoint lease() throws UnavailableException, InterruptedException
+   {
+      if (closed)
+      {
+         throw new UnavailableException("MessageEndpoint pool is closed.");
+      }
+      MessageEndpoint endpoint = idle.poll();
+      if (endpoint != null)
+      {
+         return endpoint;
+      }
+      if (created.incrementAndGet() <= maxSize)
+      {
+         boolean succeeded = false;
+         try
+         {
+            endpoint = endpointFactory.createEndpoint(null);
+            succeeded = true;
+            return endpoint;
+         }
+         finally
+         {
+            if (!succeeded)
+            {
+               created.decrementAndGet();
+            }
+         }
+      }
+      created.decrementAndGet();
+      while (!closed)
+      {
+         endpoint = idle.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+         if (endpoint != null)
+         {
+            return endpoint;
+         }
+      }
+      throw new UnavailableException("MessageEndpoint pool is closed.");
+   }
+
+   /**
+    * Returns a leased endpoint to the pool, or releases it if the pool is closed.
+    *
+    * @param endpoint the MessageEndpoint
+    */
+   public void restore(MessageEndpoint endpoint)
+   {
+      if (closed)
+      {
+         release(endpoint);
+         return;
+      }
+      idle.offer(endpoint);
+      if (closed && idle.remove(endpoint))
+      {
+         release(endpoint);
+      }
+   }
+
+   /**
+    * @return number of endpoints created by this pool
+    */
+   public int getSize()
+   {
+      return created.get();
+   }
+
+   /**
+    * @return the maxSize
+    */
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   /**
+    * Closes the pool and releases the idle endpoints, leased endpoints are released when they are restored.
+    * A lease waiting for an endpoint fails within CLOSE_CHECK_MILLIS.
+    */
+   public void close()
+   {
+      closed = true;
+      MessageEndpoint endpoint;
+      while ((endpoint = idle.poll()) != null)
+      {
+         release(endpoint);
+      }
+   }
+
+   private void release(MessageEndpoint endpoint)
+   {
+      created.decrementAndGet();
+      try
+      {
+         endpoint.release();
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Failed to release the MessageEndpoint.", e);
+      }
+   }
+
+}
@@ -0,0 +1,26 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * MessageFilter selects the messages delivered to the endpoint.
+ * 
+ * The filter is evaluated on the Vert.x event loop before any work is scheduled, so a rejected message
+ * costs neither a WorkManager submission nor an endpoint invocation.
+ * 
+ * Implementations need a public no-arg constructor, and must not block.
+ *
+ */
+public interface MessageFilter
+{
+
+   /**
+    * @param message the received message
+    * @return true if the message is delivered to the endpoint, false if it is dropped.
+    */
+   boolean accept(Message<?> message);
+
+}
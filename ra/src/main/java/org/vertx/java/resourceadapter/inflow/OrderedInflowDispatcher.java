@@ -0,0 +1,115 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.work.Work;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * OrderedInflowDispatcher keeps the order of messages with the same key.
+ * 
+ * The key of a message picks one of the serial lanes, each lane runs one work at a time in the order
+ * the works are dispatched. Messages without a key are spread over the lanes in round robin.
+ * 
+ * The queue depth is shared evenly between the lanes.
+ *
+ */
+public class OrderedInflowDispatcher implements MessageDispatcher
+{
+
+   private final KeyExtractor keyExtractor;
+
+   private final InflowDispatcher[] lanes;
+
+   private final AtomicInteger nextLane = new AtomicInteger();
+
+   /**
+    * Constructor
+    * 
+    * @param executor the executor used to run the works
+    * @param keyExtractor extracts the key of the messages
+    * @param laneCount number of serial lanes, which is the maximum concurrency
+    * @param maxQueueDepth maximum number of works waiting in all lanes
+    */
+   public OrderedInflowDispatcher(Executor executor, KeyExtractor keyExtractor, int laneCount, int maxQueueDepth)
+   {
+      if (keyExtractor == null)
+      {
+         throw new IllegalArgumentException("KeyExtractor can't be null.");
+      }
+      if (laneCount < 1)
+      {
+         throw new IllegalArgumentException("laneCount must be positive.");
+      }
+      this.keyExtractor = keyExtractor;
+      this.lanes = new InflowDispatcher[laneCount];
+      int laneQueueDepth = maxQueueDepth / laneCount;
+      for (int i = 0; i < laneCount; i++)
+      {
+         this.lanes[i] = new InflowDispatcher(executor, 1, laneQueueDepth);
+      }
+   }
+
+   @Override
+   public boolean dispatch(Message<?> message, Work work)
+   {
+      return lanes[laneOf(keyExtractor.extractKey(message))].dispatch(work);
+   }
+
+   private int laneOf(Object key)
+   {
+      if (key == null)
+      {
+         return (nextLane.getAndIncrement() & Integer.MAX_VALUE) % lanes.length;
+      }
+      int hash = key.hashCode();
+      // spreads the higher bits, like HashMap does
+      hash ^= (hash >>> 16);
+      return (hash & Integer.MAX_VALUE) % lanes.length;
+   }
+
+   @Override
+   public int getQueueSize()
+   {
+      int size = 0;
+      for (InflowDispatcher lane: lanes)
+      {
+         size += lane.getQueueSize();
+      }
+      return size;
+   }
+
+   @Override
+   public int getActiveCount()
+   {
+      int count = 0;
+      for (InflowDispatcher lane: lanes)
+      {
+         count += lane.getActiveCount();
+      }
+      return count;
+   }
+
+   /**
+    * @return number of serial lanes
+    */
+   public int getLaneCount()
+   {
+      return lanes.length;
+   }
+
+   @Override
+   public void close()
+   {
+      for (InflowDispatcher lane: lanes)
+      {
+         lane.close();
+      }
+   }
+
+}
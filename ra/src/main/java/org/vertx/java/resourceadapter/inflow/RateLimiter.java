@@ -0,0 +1,183 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+
+/**
+ * RateLimiter limits the messages an activation hands over for delivery with a token bucket.
+ *
+ * The bucket holds at most <code>burstSize</code> tokens and is refilled at <code>permitsPerSecond</code>,
+ * a message takes one token. A message which finds no token waits in a queue of at most <code>maxQueueDepth</code>
+ * messages, drained by a Vert.x timer when tokens are available again, and is rejected when the queue is full.
+ *
+ * The event loop never waits for a token.
+ *
+ * @param <T> the type of the messages, so that a message can be handed over along with what the caller keeps of it
+ */
+public class RateLimiter<T>
+{
+
+   private final Vertx vertx;
+
+   private final double permitsPerNano;
+
+   private final int burstSize;
+
+   private final int maxQueueDepth;
+
+   private final Handler<T> handler;
+
+   private final Handler<Long> drainHandler = new Handler<Long>()
+   {
+      @Override
+      public void handle(Long timerId)
+      {
+         drain();
+      }
+   };
+
+   /** Tokens in the bucket, guarded by this **/
+   private double tokens;
+
+   /** When the bucket was refilled last time, guarded by this **/
+   private long refilledNanos;
+
+   /** Messages waiting for a token, guarded by this **/
+   private final Queue<T> queue = new ArrayDeque<T>();
+
+   /** The drain timer, guarded by this **/
+   private long timerId = -1;
+
+   private boolean closed;
+
+   /**
+    * Constructor
+    *
+    * @param vertx the Vertx used to set the drain timers
+    * @param permitsPerSecond the messages handed over per second
+    * @param burstSize maximum messages handed over at once after an idle period
+    * @param maxQueueDepth maximum number of messages waiting for a token
+    * @param handler the handler of the messages which got a token
+    */
+   public RateLimiter(Vertx vertx, int permitsPerSecond, int burstSize, int maxQueueDepth, Handler<T> handler)
+   {
+      if (permitsPerSecond < 1)
+      {
+         throw new IllegalArgumentException("permitsPerSecond must be positive.");
+      }
+      if (burstSize < 1)
+      {
+         throw new IllegalArgumentException("burstSize must be positive.");
+      }
+      if (maxQueueDepth < 0)
+      {
+         throw new IllegalArgumentException("maxQueueDepth can't be negative.");
+      }
+      this.vertx = vertx;
+      this.permitsPerNano = permitsPerSecond / (double)TimeUnit.SECONDS.toNanos(1);
+      this.burstSize = burstSize;
+      this.maxQueueDepth = maxQueueDepth;
+      this.handler = handler;
+      this.tokens = burstSize;
+      this.refilledNanos = System.nanoTime();
+   }
+
+   /**
+    * Hands the message over if a token is available, queues it otherwise.
+    *
+    * The messages are handed over under the lock, so they keep the order they are submitted in.
+    *
+    * @param message the message
+    * @return false if the message is rejected because the queue is full, or the limiter is closed
+    */
+   public synchronized boolean submit(T message)
+   {
+      if (closed)
+      {
+         return false;
+      }
+      refill();
+      if (queue.isEmpty() && tokens >= 1)
+      {
+         tokens -= 1;
+         handler.handle(message);
+         return true;
+      }
+      if (queue.size() >= maxQueueDepth)
+      {
+         return false;
+      }
+      queue.offer(message);
+      scheduleDrain();
+      return true;
+   }
+
+   private synchronized void drain()
+   {
+      timerId = -1;
+      if (closed)
+      {
+         return;
+      }
+      refill();
+      while (tokens >= 1 && !queue.isEmpty())
+      {
+         tokens -= 1;
+         handler.handle(queue.poll());
+      }
+      scheduleDrain();
+   }
+
+   private void refill()
+   {
+      long now = System.nanoTime();
+      tokens = Math.min(burstSize, tokens + (now - refilledNanos) * permitsPerNano);
+      refilledNanos = now;
+   }
+
+   private void scheduleDrain()
+   {
+      if (timerId != -1 || queue.isEmpty())
+      {
+         return;
+      }
+      long waitNanos = (long)Math.ceil((1 - tokens) / permitsPerNano);
+      timerId = vertx.setTimer(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(waitNanos)), drainHandler);
+   }
+
+   /**
+    * @return number of messages waiting for a token
+    */
+   public synchronized int getQueueSize()
+   {
+      return queue.size();
+   }
+
+   /**
+    * Closes the limiter, the queued messages are discarded.
+    *
+    * @return the discarded messages, in their arrival order
+    */
+   public synchronized List<T> close()
+   {
+      closed = true;
+      if (timerId != -1)
+      {
+         vertx.cancelTimer(timerId);
+         timerId = -1;
+      }
+      List<T> discarded = new ArrayList<T>(queue);
+      queue.clear();
+      return discarded;
+   }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+/**
+ * RetryPolicy decides whether a failed delivery is retried, and how long it waits before the retry.
+ *
+ * The delay starts at <code>initialDelayMillis</code> and doubles on each retry, up to <code>maxDelayMillis</code>.
+ *
+ */
+public class RetryPolicy
+{
+
+   private final int maxRetries;
+
+   private final long initialDelayMillis;
+
+   private final long maxDelayMillis;
+
+   /**
+    * Constructor
+    *
+    * @param maxRetries maximum number of retries after the first delivery
+    * @param initialDelayMillis the delay before the first retry
+    * @param maxDelayMillis the maximum delay before a retry
+    */
+   public RetryPolicy(int maxRetries, long initialDelayMillis, long maxDelayMillis)
+   {
+      if (maxRetries < 0)
+      {
+         throw new IllegalArgumentException("maxRetries can't be negative.");
+      }
+      if (initialDelayMillis < 1)
+      {
+         throw new IllegalArgumentException("initialDelayMillis must be positive.");
+      }
+      if (maxDelayMillis < initialDelayMillis)
+      {
+         throw new IllegalArgumentException("maxDelayMillis can't be less than initialDelayMillis.");
+      }
+      this.maxRetries = maxRetries;
+      this.initialDelayMillis = initialDelayMillis;
+      this.maxDelayMillis = maxDelayMillis;
+   }
+
+   /**
+    * @param retries number of retries already made
+    * @return true if the delivery can be retried again
+    */
+   public boolean canRetry(int retries)
+   {
+      return retries < maxRetries;
+   }
+
+   /**
+    * @param retries number of retries already made
+    * @return the milliseconds to wait before the next retry
+    */
+   public long getDelayMillis(int retries)
+   {
+      long delay = initialDelayMillis;
+      for (int i = 0; i < retries && delay < maxDelayMillis; i++)
+      {
+         delay <<= 1;
+      }
+      return Math.min(delay, maxDelayMillis);
+   }
+
+   /**
+    * @return the maxRetries
+    */
+   public int getMaxRetries()
+   {
+      return maxRetries;
+   }
+
+}
@@ -0,0 +1,372 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.eventbus.impl.BaseMessage;
+
+/**
+ * SharedSubscription registers one event bus handler per address and Vert.x platform, and hands the received
+ * messages over to the activations subscribed to that address.
+ *
+ * Several endpoints activated on the same address in one JVM so take one subscription entry in the cluster,
+ * and the point to point messages are spread evenly across the nodes.
+ *
+ * The messages keep the event bus semantics: a sent message is handed to one subscriber, the next one in turn
+ * which accepts it, and a published message is handed to each subscriber which accepts it. A paused subscriber,
+ * which unsubscribes, leaves its share of the sent messages to the others.
+ *
+ */
+public class SharedSubscription implements Handler<Message<?>>
+{
+
+   private static Logger log = Logger.getLogger(SharedSubscription.class.getName());
+
+   /** All registered subscriptions, guarded by itself **/
+   private static final Map<Key, SharedSubscription> SUBSCRIPTIONS = new HashMap<Key, SharedSubscription>();
+
+   /** Whether a received event bus message is sent or published, null if it can't be read **/
+   private static final Field SEND_FIELD;
+
+   /** Copies a received event bus message for each handler it is published to, null if it can't be called **/
+   private static final Method COPY_METHOD;
+
+   static
+   {
+      Field sendField = null;
+      Method copyMethod = null;
+      try
+      {
+         sendField = BaseMessage.class.getDeclaredField("send");
+         sendField.setAccessible(true);
+         copyMethod = BaseMessage.class.getDeclaredMethod("copy");
+         copyMethod.setAccessible(true);
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't tell the published messages, all messages are handed to one subscriber.", e);
+         sendField = null;
+         copyMethod = null;
+      }
+      SEND_FIELD = sendField;
+      COPY_METHOD = copyMethod;
+   }
+
+   private final Key key;
+
+   /** The subscribers, copied on write under SUBSCRIPTIONS **/
+   private volatile Subscriber[] subscribers = new Subscriber[0];
+
+   /** The turn of the next subscriber of a sent message **/
+   private final AtomicInteger next = new AtomicInteger();
+
+   private SharedSubscription(Key key)
+   {
+      this.key = key;
+   }
+
+   /**
+    * Subscribes to the address, registers the event bus handler if it is the first subscriber.
+    *
+    * @param vertx the Vert.x platform
+    * @param address the address
+    * @param localOnly whether the event bus handler is registered without a cluster subscription
+    * @param subscriber the subscriber
+    */
+   public static void subscribe(Vertx vertx, String address, boolean localOnly, Subscriber subscriber)
+   {
+      Key key = new Key(vertx, address, localOnly);
+      synchronized (SUBSCRIPTIONS)
+      {
+         SharedSubscription subscription = SUBSCRIPTIONS.get(key);
+         if (subscription == null)
+         {
+            subscription = new SharedSubscription(key);
+            SUBSCRIPTIONS.put(key, subscription);
+            subscription.register();
+         }
+         else
+         {
+            log.log(Level.FINE, "Shares the event bus handler on address: " + address);
+         }
+         subscription.add(subscriber);
+      }
+   }
+
+   /**
+    * Unsubscribes from the address, unregisters the event bus handler if it is the last subscriber.
+    *
+    * @param vertx the Vert.x platform
+    * @param address the address
+    * @param localOnly whether the event bus handler is registered without a cluster subscription
+    * @param subscriber the subscriber
+    */
+   public static void unsubscribe(Vertx vertx, String address, boolean localOnly, Subscriber subscriber)
+   {
+      Key key = new Key(vertx, address, localOnly);
+      synchronized (SUBSCRIPTIONS)
+      {
+         SharedSubscription subscription = SUBSCRIPTIONS.get(key);
+         if (subscription == null || !subscription.remove(subscriber))
+         {
+            return;
+         }
+         if (subscription.subscribers.length == 0)
+         {
+            SUBSCRIPTIONS.remove(key);
+            subscription.unregister();
+         }
+      }
+   }
+
+   /**
+    * @return number of subscribers of the address, 0 if there is no event bus handler
+    */
+   static int getSubscriberCount(Vertx vertx, String address, boolean localOnly)
+   {
+      synchronized (SUBSCRIPTIONS)
+      {
+         SharedSubscription subscription = SUBSCRIPTIONS.get(new Key(vertx, address, localOnly));
+         return subscription == null ? 0 : subscription.subscribers.length;
+      }
+   }
+
+   @Override
+   public void handle(Message<?> message)
+   {
+      Subscriber[] current = subscribers;
+      if (current.length == 0)
+      {
+         // unsubscribed meanwhile
+         return;
+      }
+      if (isPublished(message))
+      {
+         publish(current, message);
+      }
+      else
+      {
+         send(current, message);
+      }
+   }
+
+   /**
+    * Hands the message to the next subscriber in turn which accepts it, the one whose turn it is drops it
+    * if none accepts it.
+    */
+   private void send(Subscriber[] current, Message<?> message)
+   {
+      int first = (next.getAndIncrement() & Integer.MAX_VALUE) % current.length;
+      for (int i = 0; i < current.length; i++)
+      {
+         Subscriber subscriber = current[(first + i) % current.length];
+         if (accept(subscriber, message))
+         {
+            handle(subscriber, message);
+            return;
+         }
+      }
+      drop(current[first], message);
+   }
+
+   /**
+    * Hands the message to each subscriber which accepts it, each one gets its own copy like from the event bus.
+    */
+   private void publish(Subscriber[] current, Message<?> message)
+   {
+      boolean handed = false;
+      for (int i = 0; i < current.length; i++)
+      {
+         Subscriber subscriber = current[i];
+         if (!accept(subscriber, message))
+         {
+            drop(subscriber, message);
+            continue;
+         }
+         handle(subscriber, handed ? copy(message) : message);
+         handed = true;
+      }
+   }
+
+   private boolean accept(Subscriber subscriber, Message<?> message)
+   {
+      try
+      {
+         return subscriber.accept(message);
+      }
+      catch (RuntimeException e)
+      {
+         log.log(Level.WARNING, "Subscriber failed to accept a message on address: " + key.address + ", not handed to it.", e);
+         return false;
+      }
+   }
+
+   private void handle(Subscriber subscriber, Message<?> message)
+   {
+      try
+      {
+         subscriber.handle(message);
+      }
+      catch (RuntimeException e)
+      {
+         log.log(Level.SEVERE, "Failed to handle the message on address: " + key.address, e);
+      }
+   }
+
+   private void drop(Subscriber subscriber, Message<?> message)
+   {
+      try
+      {
+         subscriber.dropped(message);
+      }
+      catch (RuntimeException e)
+      {
+         log.log(Level.SEVERE, "Failed to drop the message on address: " + key.address, e);
+      }
+   }
+
+   /**
+    * @return true if the message is published, false if it is sent or can't be told
+    */
+   private static boolean isPublished(Message<?> message)
+   {
+      if (SEND_FIELD == null || !(message instanceof BaseMessage))
+      {
+         return false;
+      }
+      try
+      {
+         return !SEND_FIELD.getBoolean(message);
+      }
+      catch (IllegalAccessException e)
+      {
+         return false;
+      }
+   }
+
+   private static Message<?> copy(Message<?> message)
+   {
+      try
+      {
+         return (Message<?>)COPY_METHOD.invoke(message);
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't copy the published message on address: " + message.address() + ", the message is shared.", e);
+         return message;
+      }
+   }
+
+   private void register()
+   {
+      if (key.localOnly)
+      {
+         // no subscription in the cluster, only messages sent in this JVM are received
+         key.vertx.eventBus().registerLocalHandler(key.address, this);
+      }
+      else
+      {
+         key.vertx.eventBus().registerHandler(key.address, this);
+      }
+   }
+
+   private void unregister()
+   {
+      key.vertx.eventBus().unregisterHandler(key.address, this);
+   }
+
+   private void add(Subscriber subscriber)
+   {
+      Subscriber[] added = Arrays.copyOf(subscribers, subscribers.length + 1);
+      added[subscribers.length] = subscriber;
+      subscribers = added;
+   }
+
+   private boolean remove(Subscriber subscriber)
+   {
+      Subscriber[] current = subscribers;
+      for (int i = 0; i < current.length; i++)
+      {
+         if (current[i] == subscriber)
+         {
+            Subscriber[] removed = Arrays.copyOf(current, current.length - 1);
+            System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+            subscribers = removed;
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * A subscriber of an address, an activation in practice.
+    */
+   public interface Subscriber extends Handler<Message<?>>
+   {
+
+      /**
+       * Tells whether the subscriber takes the message, called on the event loop before it is handed the message.
+       *
+       * @param message the message
+       * @return false if the subscriber does not want the message
+       */
+      boolean accept(Message<?> message);
+
+      /**
+       * Called when a message this subscriber does not accept is dropped: a published message it does not accept,
+       * or a sent message no subscriber accepts, on the subscriber whose turn it is.
+       *
+       * @param message the message
+       */
+      void dropped(Message<?> message);
+   }
+
+   private static class Key
+   {
+
+      private final Vertx vertx;
+
+      private final String address;
+
+      private final boolean localOnly;
+
+      private Key(Vertx vertx, String address, boolean localOnly)
+      {
+         this.vertx = vertx;
+         this.address = address;
+         this.localOnly = localOnly;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         int result = System.identityHashCode(vertx);
+         result = 31 * result + address.hashCode();
+         return 31 * result + (localOnly ? 1 : 0);
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (!(obj instanceof Key))
+         {
+            return false;
+         }
+         Key other = (Key)obj;
+         return vertx == other.vertx && address.equals(other.address) && localOnly == other.localOnly;
+      }
+   }
+
+}
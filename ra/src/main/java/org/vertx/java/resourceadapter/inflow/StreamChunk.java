@@ -0,0 +1,71 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import io.netty.buffer.ByteBuf;
+
+import org.vertx.java.core.buffer.Buffer;
+
+/**
+ * StreamChunk is one chunk of a stream sent over the event bus, see {@link ChunkedStreamSender}.
+ *
+ * A chunk is a Buffer made of a header and the data: the int <code>MAGIC</code>, the long stream id,
+ * the int sequence of the chunk starting at 0, a byte of flags where <code>LAST</code> marks the last chunk,
+ * then the bytes of the chunk.
+ *
+ */
+final class StreamChunk
+{
+
+   static final int MAGIC = 0x56585343;
+
+   static final byte LAST = 1;
+
+   static final int HEADER_SIZE = 4 + 8 + 4 + 1;
+
+   final long streamId;
+
+   final int sequence;
+
+   final boolean last;
+
+   /** The data, shares the memory of the received Buffer **/
+   final ByteBuf data;
+
+   private StreamChunk(long streamId, int sequence, boolean last, ByteBuf data)
+   {
+      this.streamId = streamId;
+      this.sequence = sequence;
+      this.last = last;
+      this.data = data;
+   }
+
+   static Buffer encode(long streamId, int sequence, boolean last, byte[] data, int length)
+   {
+      Buffer buffer = new Buffer(HEADER_SIZE + length);
+      buffer.appendInt(MAGIC).appendLong(streamId).appendInt(sequence).appendByte(last ? LAST : 0);
+      return buffer.appendBytes(data, 0, length);
+   }
+
+   /**
+    * @param body the body of a message
+    * @return the chunk, or null if the body is not a chunk
+    */
+   static StreamChunk decode(Object body)
+   {
+      if (!(body instanceof Buffer))
+      {
+         return null;
+      }
+      Buffer buffer = (Buffer)body;
+      if (buffer.length() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+      {
+         return null;
+      }
+      ByteBuf buf = buffer.getByteBuf();
+      ByteBuf data = buf.slice(buf.readerIndex() + HEADER_SIZE, buffer.length() - HEADER_SIZE);
+      return new StreamChunk(buffer.getLong(4), buffer.getInt(12), (buffer.getByte(16) & LAST) != 0, data);
+   }
+
+}
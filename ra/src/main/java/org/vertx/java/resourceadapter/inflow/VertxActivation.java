@@ -21,7 +21,19 @@
  */
 package org.vertx.java.resourceadapter.inflow;
 
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,7 +41,6 @@ import javax.resource.ResourceException;
 import javax.resource.spi.endpoint.MessageEndpoint;
 import javax.resource.spi.endpoint.MessageEndpointFactory;
 import javax.resource.spi.work.Work;
-import javax.resource.spi.work.WorkException;
 
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
@@ -49,6 +60,21 @@ public class VertxActivation implements VertxPlatformFactory.VertxListener, Vert
 
    private static Logger log = Logger.getLogger(VertxActivation.class.getName());
    
+   /** Failure code replied when a message is rejected because the inflow queue is full */
+   public static final int QUEUE_FULL_FAILURE = 503;
+   
+   /** The failure code replied to the messages rejected by the rate limit */
+   public static final int RATE_LIMITED_FAILURE = 429;
+   
+   /** The failure code replied to the messages dropped because their deadline passed */
+   public static final int DEADLINE_EXCEEDED_FAILURE = 504;
+   
+   /** The failure code replied to the queued messages superseded by a newer one with the same conflation key */
+   public static final int SUPERSEDED_FAILURE = 409;
+   
+   /** The failure code replied to the messages whose delivery failed after all retries */
+   public static final int DELIVERY_FAILURE = 500;
+   
    /** The resource adapter */
    private VertxResourceAdapter ra;
 
@@ -62,19 +88,97 @@ public class VertxActivation implements VertxPlatformFactory.VertxListener, Vert
    
    private VertxPlatformConfiguration config;
    
-   private Handler<Message<?>> messageHandler;
+   private SharedSubscription.Subscriber messageHandler;
+   
+   private MessageDispatcher dispatcher;
+   
+   /** The executor owned by the activation, null when the works run on the WorkManager */
+   private ExecutorService deliveryExecutor;
+   
+   private MessageEndpointPool endpointPool;
+   
+   /** HandleMessage works reused across deliveries, so the event loop does not allocate one per message */
+   private ArrayBlockingQueue<HandleMessage> idleCarriers;
+   
+   /** Groups the messages when the endpoint is a VertxBatchListener, null otherwise */
+   private MessageBatcher<ReceivedMessage> batcher;
+   
+   /** Pauses the inflow when the dispatch queue is too long, null if no highWatermark is specified */
+   private BackpressureController backpressure;
+   
+   /** Limits the messages handed over for delivery, null if the inflow is not rate limited */
+   private RateLimiter<ReceivedMessage> rateLimiter;
+   
+   /** Decides the retries of the failed deliveries */
+   private RetryPolicy retryPolicy;
+   
+   /** Selects the delivered messages, null if all messages are delivered */
+   private MessageFilter messageFilter;
+   
+   /** Reads the deadline of the messages, null if the messages have no deadline */
+   private MessageDeadline messageDeadline;
+   
+   /** Adjusts the concurrency of the dispatcher from the delivery latency, null if the concurrency is static */
+   private AdaptiveConcurrencyLimit concurrencyLimit;
+   
+   /** The dispatcher whose concurrency is adjusted, null if the concurrency is static */
+   private InflowDispatcher adaptiveDispatcher;
+   
+   /** The journal the messages are appended to before they are delivered, null if they are not journaled */
+   private InflowJournal journal;
+   
+   /** Number of drain requests of the journal, the thread which moves it from 0 drains for the others */
+   private final AtomicInteger journalDrainRequests = new AtomicInteger();
+   
+   /** The resolved addresses the message handler is registered on */
+   private List<String> addresses;
+   
+   /** The latency statistics by resolved address */
+   private Map<String, InflowStatistics> statistics;
+   
+   /** Whether the message handler is registered to the event bus, guarded by registrationLock */
+   private boolean handlerRegistered;
+   
+   /** Guards the registration, which the backpressure switches from the event loop and from the delivery threads */
+   private final Object registrationLock = new Object();
+   
+   /** The context class loader of the deploying thread, used to load the classes specified by the activation spec */
+   private ClassLoader deploymentClassLoader;
+   
+   /** Whether the activation is stopped, guarded by this */
+   private boolean stopped;
+   
+   /** The cause which failed the activation, null if it did not fail, guarded by this */
+   private Throwable failure;
    
    /**
     * Whether delivery is active
     */
    private final AtomicBoolean deliveryActive = new AtomicBoolean(false);
    
+   /** Whether the endpoint is a VertxBatchListener */
+   private boolean batchListener;
+   
+   /** Whether the endpoint is a VertxStreamListener */
+   private boolean streamListener;
+   
+   /** Whether the container starts a transaction around each delivery, per MessageEndpointFactory.isDeliveryTransacted */
+   private boolean transacted;
+   
+   /** The listener method passed to beforeDelivery */
+   private static final Method ON_MESSAGE;
+   
+   private static final Method ON_MESSAGES;
+   
+   private static final Method ON_STREAM;
    
    static 
    {
       try
       {
-         VertxListener.class.getMethod("onMessage", new Class[] { Message.class });
+         ON_MESSAGE = VertxListener.class.getMethod("onMessage", Message.class);
+         ON_MESSAGES = VertxBatchListener.class.getMethod("onMessages", List.class);
+         ON_STREAM = VertxStreamListener.class.getMethod("onStream", String.class, InputStream.class);
       }
       catch (Exception e)
       {
@@ -117,6 +221,15 @@ public class VertxActivation implements VertxPlatformFactory.VertxListener, Vert
       return endpointFactory;
    }
 
+   /**
+    * Gets the cause which failed the activation, the activation consumes no message then.
+    * @return the cause, null if the activation did not fail
+    */
+   public synchronized Throwable getFailure()
+   {
+      return failure;
+   }
+
    /**
     * Start the activation
     * @throws ResourceException Thrown if an error occurs
@@ -125,29 +238,123 @@ public class VertxActivation implements VertxPlatformFactory.VertxListener, Vert
    {
       if (deliveryActive.get() == false)
       {
-         VertxPlatformFactory.instance().createVertxIfNotStart(this.config, this);
+         this.deploymentClassLoader = Thread.currentThread().getContextClassLoader();
+         // the deployment does not wait for the Vert.x cluster join, the handlers are registered when Vert.x is ready.
+         ra.getWorkManager().scheduleWork(new StartActivation());
       }
    }
    
    private void setup()
    {
-      String address = this.spec.getAddress();
       try
       {
-         final MessageEndpoint endPoint = this.endpointFactory.createEndpoint(null);
-         this.messageHandler = new Handler<Message<?>>()
+         if (this.vertx == null)
+         {
+            throw new ResourceException("Vertx platform did not start yet.");
+         }
+         this.endpointPool = new MessageEndpointPool(this.endpointFactory, getDispatchSlots());
+         // creates the first endpoint up front, so that a broken endpoint fails the activation
+         MessageEndpoint endPoint = this.endpointPool.lease();
+         this.batchListener = endPoint instanceof VertxBatchListener;
+         this.streamListener = !this.batchListener && endPoint instanceof VertxStreamListener;
+         this.endpointPool.restore(endPoint);
+         this.transacted = this.endpointFactory.isDeliveryTransacted(listenerMethod());
+         // transacted messages are grouped to share one transaction
+         boolean transactionBatch = this.transacted && !this.batchListener && !this.streamListener
+            && this.spec.getTransactionBatchSize().intValue() > 1;
+         boolean batchDelivery = this.batchListener || transactionBatch;
+         if (batchDelivery)
          {
+            int batchSize = this.batchListener ? this.spec.getBatchSize() : this.spec.getTransactionBatchSize();
+            this.batcher = new MessageBatcher<ReceivedMessage>(this.vertx, batchSize, this.spec.getMaxLingerMillis(),
+               new Handler<List<ReceivedMessage>>()
+               {
+                  public void handle(List<ReceivedMessage> messages)
+                  {
+                     handleBatch(messages);
+                  }
+               });
+         }
+         this.messageHandler = new SharedSubscription.Subscriber()
+         {
+            public boolean accept(Message<?> message)
+            {
+               return messageFilter == null || VertxActivation.this.accept(message);
+            }
+
             public void handle(Message<?> message)
             {
-               handleMessage(endPoint, message);
+               handleMessage(message);
+            }
+
+            public void dropped(Message<?> message)
+            {
+               messageFiltered(message);
             }
          };
-         if (this.vertx == null)
+         this.dispatcher = createDispatcher(batchDelivery);
+         if (!batchDelivery)
          {
-            throw new ResourceException("Vertx platform did not start yet.");
+            // a carrier is held by each running or queued delivery
+            this.idleCarriers = new ArrayBlockingQueue<HandleMessage>(getDispatchSlots() + this.spec.getMaxQueueDepth());
+         }
+         if (this.spec.getHighWatermark() != null)
+         {
+            this.backpressure = new BackpressureController(this.vertx, this.dispatcher, this.spec.getHighWatermark(),
+               this.spec.getLowWatermark(), new Handler<Boolean>()
+               {
+                  public void handle(Boolean pause)
+                  {
+                     if (pause.booleanValue())
+                     {
+                        log.log(Level.INFO, "Inflow queue reaches high watermark, pauses addresses: " + addresses);
+                        unregisterHandler();
+                     }
+                     else
+                     {
+                        log.log(Level.INFO, "Inflow queue drops to low watermark, resumes addresses: " + addresses);
+                        registerHandler();
+                     }
+                  }
+               });
+         }
+         if (this.spec.getMaxMessagesPerSecond() != null)
+         {
+            this.rateLimiter = new RateLimiter<ReceivedMessage>(this.vertx, this.spec.getMaxMessagesPerSecond(),
+               this.spec.getBurstSize(), this.spec.getRateLimitQueueDepth(), new Handler<ReceivedMessage>()
+               {
+                  public void handle(ReceivedMessage received)
+                  {
+                     acceptMessage(received.message, received.receivedNanos);
+                  }
+               });
+         }
+         if (this.spec.isFiltered())
+         {
+            this.messageFilter = createMessageFilter();
+         }
+         if (this.spec.isDeadlineEnforced())
+         {
+            this.messageDeadline = new MessageDeadline(this.spec.getDeadlineField());
+         }
+         if (this.spec.isJournaled())
+         {
+            this.journal = InflowJournal.open(new File(this.spec.getJournalDirectory().trim()), this.spec.getJournalSegmentSize());
+         }
+         this.retryPolicy = new RetryPolicy(this.spec.getMaxRetries(), this.spec.getRetryInitialDelayMillis(),
+            this.spec.getRetryMaxDelayMillis());
+         this.addresses = AddressResolver.resolve(this.spec.getAddress(), this.vertx);
+         if (this.addresses.isEmpty())
+         {
+            throw new ResourceException("No address resolved from: " + this.spec.getAddress());
+         }
+         this.statistics = new HashMap<String, InflowStatistics>();
+         for (String address: this.addresses)
+         {
+            this.statistics.put(address, InflowStatistics.acquire(address));
          }
-         vertx.eventBus().registerHandler(address, messageHandler);
-         log.log(Level.INFO, "Endpoint created, register Vertx handler on address: " + address);
+         registerHandler();
+         log.log(Level.INFO, "Endpoint created, register Vertx handler on addresses: " + this.addresses);
       }
       catch (Exception e)
       {
@@ -155,77 +362,1189 @@ public class VertxActivation implements VertxPlatformFactory.VertxListener, Vert
       }
    }
    
-   private void handleMessage(MessageEndpoint endPoint, Message<?> message)
+   /**
+    * Subscribes to the addresses, the activations on the same address share one event bus handler.
+    */
+   private void registerHandler()
+   {
+      synchronized (this.registrationLock)
+      {
+         if (!this.handlerRegistered)
+         {
+            for (String address: this.addresses)
+            {
+               SharedSubscription.subscribe(this.vertx, address, this.spec.getLocalOnly().booleanValue(), this.messageHandler);
+            }
+            this.handlerRegistered = true;
+         }
+      }
+   }
+   
+   private void unregisterHandler()
+   {
+      synchronized (this.registrationLock)
+      {
+         if (this.handlerRegistered)
+         {
+            for (String address: this.addresses)
+            {
+               SharedSubscription.unsubscribe(this.vertx, address, this.spec.getLocalOnly().booleanValue(), this.messageHandler);
+            }
+            this.handlerRegistered = false;
+         }
+      }
+   }
+   
+   private MessageDispatcher createDispatcher(boolean batchDelivery) throws ResourceException
+   {
+      Executor executor = createExecutor();
+      if (this.spec.isOrdered())
+      {
+         if (!batchDelivery)
+         {
+            if (this.spec.getAdaptiveConcurrency().booleanValue())
+            {
+               log.log(Level.WARNING, "Adaptive concurrency is not supported for ordered delivery, ignored on address: " + this.spec.getAddress());
+            }
+            return new OrderedInflowDispatcher(executor, createKeyExtractor(), this.spec.getOrderingLanes(),
+               this.spec.getMaxQueueDepth());
+         }
+         log.log(Level.WARNING, "Ordered delivery is not supported for batched delivery, ignored on address: " + this.spec.getAddress());
+      }
+      InflowDispatcher inflowDispatcher;
+      if (this.spec.isConflated() && !batchDelivery && !this.streamListener)
+      {
+         inflowDispatcher = new ConflatingInflowDispatcher(executor, new JsonFieldKeyExtractor(this.spec.getConflationKey()),
+            this.spec.getMaxConcurrency(), this.spec.getMaxQueueDepth(), new Handler<Work>()
+            {
+               public void handle(Work work)
+               {
+                  messageSuperseded((HandleMessage)work);
+               }
+            });
+      }
+      else
+      {
+         if (this.spec.isConflated())
+         {
+            log.log(Level.WARNING, "Conflation is not supported for batched or streamed delivery, ignored on address: " + this.spec.getAddress());
+         }
+         inflowDispatcher = new InflowDispatcher(executor, this.spec.getMaxConcurrency(), this.spec.getMaxQueueDepth());
+      }
+      if (this.spec.getAdaptiveConcurrency().booleanValue())
+      {
+         this.concurrencyLimit = new AdaptiveConcurrencyLimit(this.spec.getMinConcurrency(), this.spec.getMaxConcurrency(),
+            this.spec.getLatencyTolerance());
+         this.adaptiveDispatcher = inflowDispatcher;
+         inflowDispatcher.setConcurrencyLimit(this.concurrencyLimit.getLimit());
+      }
+      return inflowDispatcher;
+   }
+   
+   /**
+    * Drops a queued message replaced by a newer one with the same conflation key, called under the dispatcher lock.
+    * Its sender gets a failure if it waits for a reply.
+    */
+   private void messageSuperseded(HandleMessage work)
+   {
+      Message<?> message = work.message;
+      InflowStatistics addressStatistics = this.statistics.get(message.address());
+      if (addressStatistics != null)
+      {
+         addressStatistics.recordConflated();
+      }
+      work.recycle();
+      if (message.replyAddress() != null)
+      {
+         message.fail(SUPERSEDED_FAILURE, "Superseded by a newer message with the same conflation key.");
+      }
+      if (this.journal != null && message instanceof JournaledMessage)
+      {
+         this.journal.complete((JournaledMessage<?>)message);
+      }
+   }
+   
+   /**
+    * Feeds the latency of a delivery back to the adaptive concurrency limit, and applies the new limit to the dispatcher.
+    */
+   private void adaptConcurrency(long latencyNanos, boolean failed)
+   {
+      int limit = this.concurrencyLimit.update(latencyNanos, failed);
+      if (limit != this.adaptiveDispatcher.getConcurrencyLimit())
+      {
+         log.log(Level.FINE, "Concurrency limit changes to " + limit + " on address: " + this.spec.getAddress());
+         this.adaptiveDispatcher.setConcurrencyLimit(limit);
+      }
+   }
+   
+   /**
+    * @return maximum number of works the dispatcher submits to the executor at the same time,
+    *         each of them leases an endpoint from the pool
+    */
+   private int getDispatchSlots()
+   {
+      return Math.max(this.spec.getMaxConcurrency(), this.spec.getOrderingLanes());
+   }
+   
+   private Executor createExecutor()
+   {
+      String mode = this.spec.getDeliveryMode();
+      String threadName = "vertx-inflow-" + this.spec.getAddress();
+      if (VertxActivationSpec.DELIVERY_MODE_THREAD_POOL.equalsIgnoreCase(mode))
+      {
+         this.deliveryExecutor = InflowExecutors.threadPool(threadName, this.spec.getDeliveryThreads(), getDispatchSlots());
+         return this.deliveryExecutor;
+      }
+      if (VertxActivationSpec.DELIVERY_MODE_VIRTUAL_THREAD.equalsIgnoreCase(mode))
+      {
+         this.deliveryExecutor = InflowExecutors.virtualThreads(threadName, this.spec.getDeliveryThreads(), getDispatchSlots());
+         return this.deliveryExecutor;
+      }
+      return InflowExecutors.workManager(ra.getWorkManager());
+   }
+   
+   private MessageFilter createMessageFilter() throws ResourceException
    {
+      String className = this.spec.getMessageFilter();
+      if (className == null || className.trim().length() == 0)
+      {
+         return new JsonSelectorMessageFilter(this.spec.getSelector());
+      }
       try
       {
-         ra.getWorkManager().scheduleWork(new HandleMessage(endPoint, message));
+         ClassLoader cl = this.deploymentClassLoader;
+         if (cl == null)
+         {
+            cl = VertxActivation.class.getClassLoader();
+         }
+         return (MessageFilter)Class.forName(className.trim(), true, cl).newInstance();
       }
-      catch (WorkException e)
+      catch (Exception e)
       {
-         throw new RuntimeException("Can't handle message.", e);
+         throw new ResourceException("Can't create the MessageFilter: " + className, e);
       }
    }
    
-   @Override
-   public void whenReady(Vertx vertx)
+   private KeyExtractor createKeyExtractor() throws ResourceException
    {
-      if (deliveryActive.get())
+      String className = this.spec.getKeyExtractor();
+      if (className == null || className.trim().length() == 0)
       {
-         log.log(Level.WARNING, "Vertx has been started.");
+         return new JsonFieldKeyExtractor(this.spec.getOrderingKey());
+      }
+      try
+      {
+         ClassLoader cl = this.deploymentClassLoader;
+         if (cl == null)
+         {
+            cl = VertxActivation.class.getClassLoader();
+         }
+         return (KeyExtractor)Class.forName(className.trim(), true, cl).newInstance();
+      }
+      catch (Exception e)
+      {
+         throw new ResourceException("Can't create the KeyExtractor: " + className, e);
+      }
+   }
+   
+   /**
+    * @return the listener method of the endpoint
+    */
+   private Method listenerMethod()
+   {
+      if (this.batchListener)
+      {
+         return ON_MESSAGES;
+      }
+      return this.streamListener ? ON_STREAM : ON_MESSAGE;
+   }
+   
+   /**
+    * Handles a message accepted by the filter, if any.
+    */
+   void handleMessage(Message<?> message)
+   {
+      // the queue wait of the delivery starts here, it covers the rate limiter, the journal and the batcher
+      long receivedNanos = System.nanoTime();
+      if (this.streamListener)
+      {
+         // the chunks after the first one are replies, a stream is admitted as a whole
+         receiveStream(message, receivedNanos);
          return;
       }
-      this.vertx = vertx;
-      setup();
-      deliveryActive.set(true);
-      VertxPlatformFactory.instance().addVertxHolder(this);
+      if (this.rateLimiter == null)
+      {
+         acceptMessage(message, receivedNanos);
+      }
+      else if (!this.rateLimiter.submit(new ReceivedMessage(message, receivedNanos)))
+      {
+         log.log(Level.FINE, "Rate limit of address: " + message.address() + " is exceeded, message is rejected.");
+         message.fail(RATE_LIMITED_FAILURE, "Rate limit is exceeded.");
+      }
    }
    
-   @Override
-   public Vertx getVertx()
+   /**
+    * Evaluates the filter on the event loop, a message no activation on the address accepts is dropped without reply.
+    */
+   private boolean accept(Message<?> message)
    {
-      return this.vertx;
+      if (this.streamListener)
+      {
+         // a stream is not filtered, its first chunk has no selectable body
+         return true;
+      }
+      try
+      {
+         return this.messageFilter.accept(message);
+      }
+      catch (RuntimeException e)
+      {
+         log.log(Level.WARNING, "MessageFilter failed on a message of address: " + message.address() + ", message is not accepted.", e);
+         return false;
+      }
+   }
+   
+   private void messageFiltered(Message<?> message)
+   {
+      InflowStatistics addressStatistics = this.statistics.get(message.address());
+      if (addressStatistics != null)
+      {
+         addressStatistics.recordFiltered();
+      }
+   }
+   
+   private void acceptMessage(Message<?> message, long receivedNanos)
+   {
+      if (this.journal == null)
+      {
+         dispatchMessage(message, receivedNanos);
+      }
+      else
+      {
+         journalMessage(message, receivedNanos);
+      }
    }
    
    /**
-    * Stop the activation
+    * Appends the message to the journal and acknowledges it to the sender with the journal sequence,
+    * the message is then delivered from the journal.
     */
-   public void stop()
+   private void journalMessage(Message<?> message, long receivedNanos)
    {
-      tearDown();
-      deliveryActive.set(false);
+      long sequence;
+      try
+      {
+         sequence = this.journal.append(message.address(), message.body(), receivedNanos);
+      }
+      catch (Exception e)
+      {
+         log.log(Level.WARNING, "Can't journal the message on address: " + message.address(), e);
+         message.fail(DELIVERY_FAILURE, "Can't journal the message: " + e.getMessage());
+         return;
+      }
+      if (message.replyAddress() != null)
+      {
+         message.reply(Long.valueOf(sequence));
+      }
+      drainJournal();
    }
    
-   private void tearDown()
+   /**
+    * Hands the journaled messages over to the dispatcher while it has room, called when a message is journaled
+    * and when a delivery completes. Only one thread drains at a time, a request made meanwhile is served by it.
+    */
+   private void drainJournal()
    {
-      this.vertx.eventBus().unregisterHandler(this.spec.getAddress(), this.messageHandler);
-      VertxPlatformFactory.instance().removeVertxHolder(this);
-      VertxPlatformFactory.instance().stopPlatformManager(this.config);
+      if (this.journalDrainRequests.getAndIncrement() != 0)
+      {
+         return;
+      }
+      int requests = 1;
+      do
+      {
+         drainAvailable();
+         requests = this.journalDrainRequests.addAndGet(-requests);
+      }
+      while (requests != 0);
+   }
+   
+   private void drainAvailable()
+   {
+      while (true)
+      {
+         if (this.batcher != null && this.dispatcher.getQueueSize() >= this.spec.getMaxQueueDepth())
+         {
+            return;
+         }
+         if (this.adaptiveDispatcher != null && this.adaptiveDispatcher.getQueueSize() >= this.adaptiveDispatcher.getConcurrencyLimit())
+         {
+            // keeps the backlog in the journal, pulled as fast as the endpoint keeps up
+            return;
+         }
+         JournaledMessage<Object> message = this.journal.peek();
+         if (message == null)
+         {
+            return;
+         }
+         if (this.batcher != null)
+         {
+            this.batcher.add(new ReceivedMessage(message, message.receivedNanos));
+         }
+         else if (!dispatchMessage(message, 0, message.receivedNanos))
+         {
+            // the queue is full, drained again when a delivery completes
+            return;
+         }
+         this.journal.advance(message);
+      }
    }
    
+   /**
+    * Marks the journal entry of a delivered or dead lettered message completed.
+    */
+   private void journalCompleted(Message<?> message)
+   {
+      if (this.journal != null && message instanceof JournaledMessage)
+      {
+         this.journal.complete((JournaledMessage<?>)message);
+         drainJournal();
+      }
+   }
    
-   private class HandleMessage implements Work
+   private void dispatchMessage(Message<?> message, long receivedNanos)
    {
-      
-      private final MessageEndpoint endPoint;
-      private final Message<?> message;
-      
-      private HandleMessage(MessageEndpoint endPoint, Message<?> message)
+      if (this.batcher != null)
       {
-         this.endPoint = endPoint;
-         this.message = message;
+         this.batcher.add(new ReceivedMessage(message, receivedNanos));
+         return;
       }
-
-      @Override
-      public void run()
+      if (!dispatchMessage(message, 0, receivedNanos))
       {
-         ((VertxListener)endPoint).onMessage(message);
+         log.log(Level.FINE, "Inflow queue of address: " + message.address() + " is full, message is rejected.");
+         message.fail(QUEUE_FULL_FAILURE, "Inflow queue is full.");
       }
-
-      @Override
-      public void release()
+   }
+   
+   /**
+    * @param receivedNanos when the message was received, or its retry was due
+    * @return false if the message is rejected because the inflow queue is full
+    */
+   private boolean dispatchMessage(Message<?> message, int retries, long receivedNanos)
+   {
+      long deadline = this.messageDeadline == null ? MessageDeadline.NONE : this.messageDeadline.deadline(message);
+      if (MessageDeadline.expired(deadline))
       {
-         
+         // dropped before it takes a delivery slot
+         messageExpired(message);
+         return true;
+      }
+      HandleMessage work = this.idleCarriers.poll();
+      if (work == null)
+      {
+         work = new HandleMessage();
+      }
+      work.reset(message, retries, deadline, receivedNanos);
+      if (!this.dispatcher.dispatch(message, work))
+      {
+         work.recycle();
+         return false;
+      }
+      if (this.backpressure != null)
+      {
+         this.backpressure.dispatched();
+      }
+      return true;
+   }
+   
+   /**
+    * Dispatches the delivery of a stream on its first chunk, the next chunks are received by the ChunkedInputStream.
+    */
+   private void receiveStream(Message<?> message, long receivedNanos)
+   {
+      StreamChunk chunk = StreamChunk.decode(message.body());
+      if (chunk == null || chunk.sequence != 0)
+      {
+         log.log(Level.FINE, "Message on address: " + message.address() + " is not the first chunk of a stream, message is rejected.");
+         message.fail(DELIVERY_FAILURE, "Not the first chunk of a stream.");
+         return;
+      }
+      ChunkedInputStream stream = new ChunkedInputStream(this.spec.getStreamWindow(), this.spec.getStreamTimeoutMillis(),
+         DELIVERY_FAILURE);
+      if (!this.dispatcher.dispatch(message, new HandleStream(message.address(), stream, receivedNanos)))
+      {
+         log.log(Level.FINE, "Inflow queue of address: " + message.address() + " is full, stream is rejected.");
+         message.fail(QUEUE_FULL_FAILURE, "Inflow queue is full.");
+         return;
+      }
+      stream.receive(message);
+      if (this.backpressure != null)
+      {
+         this.backpressure.dispatched();
+      }
+   }
+   
+   private void handleBatch(List<ReceivedMessage> batch)
+   {
+      List<Message<?>> messages = new ArrayList<Message<?>>(batch.size());
+      // the queue wait of a batch is the one of its oldest message
+      long receivedNanos = batch.get(0).receivedNanos;
+      for (ReceivedMessage received: batch)
+      {
+         messages.add(received.message);
+         if (received.receivedNanos - receivedNanos < 0)
+         {
+            receivedNanos = received.receivedNanos;
+         }
+      }
+      messages = unexpired(messages);
+      if (messages.isEmpty())
+      {
+         return;
+      }
+      if (!dispatchBatch(messages, 0, receivedNanos))
+      {
+         log.log(Level.FINE, "Inflow queue of address: " + this.spec.getAddress() + " is full, batch of " + messages.size() + " messages is rejected.");
+         for (Message<?> message: messages)
+         {
+            if (this.journal != null && message instanceof JournaledMessage)
+            {
+               // acknowledged already, read again from the journal when a delivery completes
+               this.journal.requeue((JournaledMessage<?>)message);
+            }
+            else
+            {
+               message.fail(QUEUE_FULL_FAILURE, "Inflow queue is full.");
+            }
+         }
+      }
+   }
+   
+   /**
+    * @param receivedNanos when the oldest message of the batch was received, or the retry of the batch was due
+    * @return false if the batch is rejected because the inflow queue is full
+    */
+   private boolean dispatchBatch(List<Message<?>> messages, int retries, long receivedNanos)
+   {
+      if (!this.dispatcher.dispatch(messages.get(0), new HandleBatch(messages, retries, receivedNanos)))
+      {
+         return false;
+      }
+      if (this.backpressure != null)
+      {
+         this.backpressure.dispatched();
+      }
+      return true;
+   }
+   
+   /**
+    * Drops the messages of the batch whose deadline passed.
+    *
+    * @return the messages whose deadline did not pass
+    */
+   private List<Message<?>> unexpired(List<Message<?>> messages)
+   {
+      if (this.messageDeadline == null)
+      {
+         return messages;
+      }
+      List<Message<?>> unexpired = null;
+      for (int i = 0; i < messages.size(); i++)
+      {
+         Message<?> message = messages.get(i);
+         if (MessageDeadline.expired(this.messageDeadline.deadline(message)))
+         {
+            if (unexpired == null)
+            {
+               unexpired = new ArrayList<Message<?>>(messages.subList(0, i));
+            }
+            messageExpired(message);
+         }
+         else if (unexpired != null)
+         {
+            unexpired.add(message);
+         }
+      }
+      return unexpired == null ? messages : unexpired;
+   }
+   
+   /**
+    * Hands a message whose work is dropped without running back to the journal, or fails it,
+    * so neither the sender nor the journal entry waits for it.
+    */
+   private void workDropped(Message<?> message)
+   {
+      if (this.journal != null && message instanceof JournaledMessage)
+      {
+         // read again while the activation runs, after a restart otherwise
+         this.journal.requeue((JournaledMessage<?>)message);
+      }
+      else
+      {
+         message.fail(QUEUE_FULL_FAILURE, "Inflow work is not run.");
+      }
+   }
+   
+   /**
+    * Drops a message whose deadline passed, its sender gets a failure if it waits for a reply.
+    */
+   private void messageExpired(Message<?> message)
+   {
+      log.log(Level.FINE, "Deadline of a message on address: " + message.address() + " passed, message is dropped.");
+      InflowStatistics addressStatistics = this.statistics.get(message.address());
+      if (addressStatistics != null)
+      {
+         addressStatistics.recordExpired();
+      }
+      if (message.replyAddress() != null)
+      {
+         message.fail(DEADLINE_EXCEEDED_FAILURE, "Deadline is exceeded.");
+      }
+      journalCompleted(message);
+   }
+   
+   /**
+    * Retries the message on a Vert.x timer, so no delivery thread waits for the backoff,
+    * or forwards it to the dead letter address when there is no retry left.
+    */
+   private void messageFailed(final Message<?> message, final int retries, RuntimeException cause)
+   {
+      if (!deliveryActive.get())
+      {
+         // stopping, the sender is failed or the journal entry is replayed on the next start
+         workDropped(message);
+         return;
+      }
+      if (this.retryPolicy.canRetry(retries))
+      {
+         long delay = this.retryPolicy.getDelayMillis(retries);
+         log.log(Level.FINE, "Delivery on address: " + message.address() + " failed, retries in " + delay + " ms.", cause);
+         this.vertx.setTimer(delay, new Handler<Long>()
+         {
+            public void handle(Long timerId)
+            {
+               if (!deliveryActive.get() || !dispatchMessage(message, retries + 1, System.nanoTime()))
+               {
+                  messageFailed(message, retries + 1, new RejectedExecutionException("Inflow queue is full."));
+               }
+            }
+         });
+         return;
+      }
+      log.log(Level.WARNING, "Delivery on address: " + message.address() + " failed after " + retries + " retries.", cause);
+      deadLetter(message, cause);
+   }
+   
+   private void batchFailed(final List<Message<?>> messages, final int retries, RuntimeException cause)
+   {
+      if (!deliveryActive.get())
+      {
+         for (Message<?> message: messages)
+         {
+            workDropped(message);
+         }
+         return;
+      }
+      if (this.retryPolicy.canRetry(retries))
+      {
+         long delay = this.retryPolicy.getDelayMillis(retries);
+         log.log(Level.FINE, "Delivery of a batch on address: " + this.spec.getAddress() + " failed, retries in " + delay + " ms.", cause);
+         this.vertx.setTimer(delay, new Handler<Long>()
+         {
+            public void handle(Long timerId)
+            {
+               if (!deliveryActive.get() || !dispatchBatch(messages, retries + 1, System.nanoTime()))
+               {
+                  batchFailed(messages, retries + 1, new RejectedExecutionException("Inflow queue is full."));
+               }
+            }
+         });
+         return;
+      }
+      log.log(Level.WARNING, "Delivery of a batch of " + messages.size() + " messages on address: " + this.spec.getAddress()
+         + " failed after " + retries + " retries.", cause);
+      for (Message<?> message: messages)
+      {
+         deadLetter(message, cause);
+      }
+   }
+   
+   /**
+    * Sends the body of a failed message to the dead letter address if it is specified, and replies a failure.
+    */
+   private void deadLetter(Message<?> message, RuntimeException cause)
+   {
+      String deadLetterAddress = this.spec.getDeadLetterAddress();
+      if (deadLetterAddress != null && deadLetterAddress.trim().length() > 0)
+      {
+         try
+         {
+            this.vertx.eventBus().send(deadLetterAddress.trim(), message.body());
+         }
+         catch (RuntimeException e)
+         {
+            log.log(Level.SEVERE, "Can't forward the failed message on address: " + message.address() + " to: " + deadLetterAddress, e);
+         }
+      }
+      message.fail(DELIVERY_FAILURE, String.valueOf(cause.getMessage()));
+      journalCompleted(message);
+   }
+   
+   @Override
+   public synchronized void whenReady(Vertx vertx)
+   {
+      if (this.stopped)
+      {
+         log.log(Level.INFO, "Activation on address: " + this.spec.getAddress() + " was stopped before Vertx is ready.");
+         return;
+      }
+      if (deliveryActive.get())
+      {
+         log.log(Level.WARNING, "Vertx has been started.");
+         return;
+      }
+      this.vertx = vertx;
+      try
+      {
+         setup();
+      }
+      catch (RuntimeException e)
+      {
+         log.log(Level.SEVERE, "Can't activate the endpoint on address: " + this.spec.getAddress(), e);
+         activationFailed(e);
+         return;
+      }
+      deliveryActive.set(true);
+      VertxPlatformFactory.instance().addVertxHolder(this);
+      if (this.journal != null)
+      {
+         // delivers the messages journaled before the last stop
+         drainJournal();
+      }
+   }
+   
+   @Override
+   public Vertx getVertx()
+   {
+      return this.vertx;
+   }
+   
+   /**
+    * Stop the activation
+    */
+   public synchronized void stop()
+   {
+      this.stopped = true;
+      if (deliveryActive.get())
+      {
+         tearDown();
+         deliveryActive.set(false);
+      }
+      else if (this.failure != null && this.statistics != null)
+      {
+         for (InflowStatistics addressStatistics: this.statistics.values())
+         {
+            addressStatistics.recordActivationFailure(null);
+            addressStatistics.release();
+         }
+      }
+   }
+   
+   /**
+    * Records the failure, and releases what the setup created. The failure is reported by the statistics
+    * of the address until the activation is stopped.
+    */
+   private synchronized void activationFailed(Throwable cause)
+   {
+      this.failure = cause;
+      if (this.stopped)
+      {
+         return;
+      }
+      releaseResources();
+      Throwable rootCause = cause;
+      while (rootCause.getCause() != null)
+      {
+         rootCause = rootCause.getCause();
+      }
+      InflowStatistics addressStatistics = InflowStatistics.acquire(this.spec.getAddress());
+      addressStatistics.recordActivationFailure(rootCause.toString());
+      this.statistics = new HashMap<String, InflowStatistics>();
+      this.statistics.put(this.spec.getAddress(), addressStatistics);
+   }
+   
+   private void tearDown()
+   {
+      releaseResources();
+      VertxPlatformFactory.instance().removeVertxHolder(this);
+      VertxPlatformFactory.instance().stopPlatformManager(this.config);
+   }
+   
+   /**
+    * Releases the resources of the activation, the ones a failed setup did not create are skipped.
+    */
+   private void releaseResources()
+   {
+      if (this.backpressure != null)
+      {
+         this.backpressure.close();
+      }
+      unregisterHandler();
+      if (this.rateLimiter != null)
+      {
+         // the throttled messages are not journaled yet, their senders get a failure instead of waiting
+         for (ReceivedMessage received: this.rateLimiter.close())
+         {
+            workDropped(received.message);
+         }
+      }
+      if (this.batcher != null)
+      {
+         // fails the senders, a journaled message is handed back to the journal to be replayed on the next start
+         for (ReceivedMessage received: this.batcher.close())
+         {
+            workDropped(received.message);
+         }
+      }
+      if (this.dispatcher != null)
+      {
+         this.dispatcher.close();
+      }
+      if (this.deliveryExecutor != null)
+      {
+         // lets the running deliveries complete
+         this.deliveryExecutor.shutdown();
+      }
+      if (this.endpointPool != null)
+      {
+         this.endpointPool.close();
+      }
+      if (this.journal != null)
+      {
+         this.journal.close();
+      }
+      if (this.statistics != null)
+      {
+         for (InflowStatistics addressStatistics: this.statistics.values())
+         {
+            addressStatistics.release();
+         }
+      }
+   }
+   
+   
+   /**
+    * Starts the Vert.x platform, or waits for it, off the deploying thread.
+    */
+   private class StartActivation implements Work
+   {
+
+      @Override
+      public void run()
+      {
+         try
+         {
+            VertxPlatformFactory.instance().createVertxAsync(config, VertxActivation.this);
+         }
+         catch (RuntimeException e)
+         {
+            log.log(Level.SEVERE, "Can't start Vertx for the activation on address: " + spec.getAddress(), e);
+            activationFailed(e);
+         }
+      }
+
+      @Override
+      public void release()
+      {
+         
+      }
+   }
+   
+   /**
+    * A Work which delivers to an endpoint leased from the pool, and records the latencies of the delivery.
+    */
+   private abstract class EndpointWork implements Work
+   {
+
+      /** When the event loop received the message, or the retry was due */
+      protected long receivedNanos;
+      
+      /** Number of retries made before this delivery */
+      protected int retries;
+
+      @Override
+      public void run()
+      {
+         try
+         {
+            runDelivery();
+         }
+         finally
+         {
+            completed();
+         }
+      }
+
+      private void runDelivery()
+      {
+         if (expired())
+         {
+            // the sender gave up while the work was queued
+            return;
+         }
+         long startNanos = System.nanoTime();
+         MessageEndpoint endPoint;
+         try
+         {
+            endPoint = endpointPool.lease();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            log.log(Level.WARNING, "Interrupted while waiting for an endpoint on address: " + address());
+            failed(new IllegalStateException("Interrupted while waiting for an endpoint."));
+            return;
+         }
+         catch (ResourceException e)
+         {
+            log.log(Level.SEVERE, "No endpoint available for the message on address: " + address(), e);
+            failed(new IllegalStateException("No endpoint available.", e));
+            return;
+         }
+         long deliverNanos = System.nanoTime();
+         boolean succeeded = false;
+         try
+         {
+            if (transacted)
+            {
+               deliverTransacted(endPoint);
+            }
+            else
+            {
+               deliver(endPoint);
+            }
+            succeeded = true;
+         }
+         catch (RuntimeException e)
+         {
+            failed(e);
+         }
+         finally
+         {
+            endpointPool.restore(endPoint);
+            InflowStatistics addressStatistics = statistics.get(address());
+            if (addressStatistics != null)
+            {
+               addressStatistics.recordDelivery(startNanos - receivedNanos, System.nanoTime() - deliverNanos);
+            }
+         }
+         if (concurrencyLimit != null)
+         {
+            adaptConcurrency(System.nanoTime() - deliverNanos, !succeeded);
+         }
+         if (succeeded)
+         {
+            delivered();
+         }
+      }
+
+      /**
+       * Delivers between beforeDelivery and afterDelivery, so all messages of the work share the transaction of the container.
+       */
+      private void deliverTransacted(MessageEndpoint endPoint)
+      {
+         try
+         {
+            endPoint.beforeDelivery(listenerMethod());
+         }
+         catch (NoSuchMethodException e)
+         {
+            throw new IllegalStateException("The endpoint does not have the listener method.", e);
+         }
+         catch (ResourceException e)
+         {
+            throw new IllegalStateException("Can't start the transacted delivery on address: " + address(), e);
+         }
+         try
+         {
+            deliver(endPoint);
+         }
+         finally
+         {
+            try
+            {
+               endPoint.afterDelivery();
+            }
+            catch (ResourceException e)
+            {
+               log.log(Level.SEVERE, "Can't complete the transacted delivery on address: " + address(), e);
+            }
+         }
+      }
+
+      /**
+       * Drops the messages whose deadline passed, called before an endpoint is leased.
+       *
+       * @return true if nothing is left to deliver
+       */
+      protected boolean expired()
+      {
+         return false;
+      }
+
+      /**
+       * Called once the work has run, whether the delivery succeeded or not.
+       */
+      protected void completed()
+      {
+         
+      }
+
+      /**
+       * @return the address the latencies are recorded on
+       */
+      protected abstract String address();
+
+      protected abstract void deliver(MessageEndpoint endPoint);
+
+      /**
+       * Called when the endpoint handled the delivery without exception.
+       */
+      protected abstract void delivered();
+
+      /**
+       * Called when the endpoint throws an exception.
+       */
+      protected abstract void failed(RuntimeException cause);
+
+      /**
+       * Called by the dispatcher when the work is dropped without running, because the executor rejects it
+       * or the activation stops.
+       */
+      @Override
+      public abstract void release();
+   }
+   
+   private class HandleMessage extends EndpointWork
+   {
+      
+      private Message<?> message;
+      
+      /** The deadline of the message, MessageDeadline.NONE if it has none */
+      private long deadline;
+      
+      private void reset(Message<?> message, int retries, long deadline, long receivedNanos)
+      {
+         this.message = message;
+         this.retries = retries;
+         this.deadline = deadline;
+         this.receivedNanos = receivedNanos;
+      }
+      
+      /**
+       * Returns the carrier to the idle ones, it is dropped if they are full.
+       */
+      private void recycle()
+      {
+         this.message = null;
+         idleCarriers.offer(this);
+      }
+
+      @Override
+      protected boolean expired()
+      {
+         if (MessageDeadline.expired(deadline))
+         {
+            messageExpired(message);
+            return true;
+         }
+         return false;
+      }
+
+      @Override
+      protected void completed()
+      {
+         recycle();
+      }
+
+      @Override
+      public void release()
+      {
+         workDropped(message);
+         recycle();
+      }
+
+      @Override
+      protected String address()
+      {
+         return message.address();
+      }
+
+      @Override
+      protected void deliver(MessageEndpoint endPoint)
+      {
+         ((VertxListener)endPoint).onMessage(message);
+      }
+
+      @Override
+      protected void delivered()
+      {
+         journalCompleted(message);
+      }
+
+      @Override
+      protected void failed(RuntimeException cause)
+      {
+         messageFailed(message, retries, cause);
+      }
+   }
+   
+   private class HandleStream extends EndpointWork
+   {
+      
+      private final String address;
+      
+      private final ChunkedInputStream stream;
+      
+      private boolean succeeded;
+      
+      private String failure;
+      
+      private HandleStream(String address, ChunkedInputStream stream, long receivedNanos)
+      {
+         this.address = address;
+         this.stream = stream;
+         this.receivedNanos = receivedNanos;
+      }
+
+      /**
+       * Replies the outcome to the last chunk, or aborts the stream if the endpoint did not read it to the end.
+       */
+      @Override
+      protected void completed()
+      {
+         stream.finish(succeeded ? null : failure != null ? failure : "Stream is not delivered.");
+      }
+
+      /**
+       * Aborts the stream, its sender gets a failure.
+       */
+      @Override
+      public void release()
+      {
+         stream.finish("Inflow work is not run.");
+      }
+
+      @Override
+      protected String address()
+      {
+         return address;
+      }
+
+      @Override
+      protected void deliver(MessageEndpoint endPoint)
+      {
+         ((VertxStreamListener)endPoint).onStream(address, stream);
+      }
+
+      @Override
+      protected void delivered()
+      {
+         succeeded = true;
+      }
+
+      /**
+       * A stream is not retried, its chunks are consumed by the failed delivery.
+       */
+      @Override
+      protected void failed(RuntimeException cause)
+      {
+         log.log(Level.WARNING, "Failed to deliver the stream on address: " + address, cause);
+         failure = "Failed to deliver the stream: " + cause.getMessage();
+      }
+   }
+   
+   private class HandleBatch extends EndpointWork
+   {
+      
+      private List<Message<?>> messages;
+      
+      private HandleBatch(List<Message<?>> messages, int retries, long receivedNanos)
+      {
+         this.messages = messages;
+         this.retries = retries;
+         this.receivedNanos = receivedNanos;
+      }
+
+      @Override
+      protected boolean expired()
+      {
+         messages = unexpired(messages);
+         return messages.isEmpty();
+      }
+
+      @Override
+      public void release()
+      {
+         for (Message<?> message: messages)
+         {
+            workDropped(message);
+         }
+      }
+
+      /**
+       * A batch may span several addresses, it is recorded on the address of its first message.
+       */
+      @Override
+      protected String address()
+      {
+         return messages.get(0).address();
+      }
+
+      @Override
+      protected void deliver(MessageEndpoint endPoint)
+      {
+         if (batchListener)
+         {
+            ((VertxBatchListener)endPoint).onMessages(messages);
+            return;
+         }
+         // a transaction batch, the messages are delivered one by one in the same transaction
+         for (Message<?> message: messages)
+         {
+            ((VertxListener)endPoint).onMessage(message);
+         }
+      }
+
+      @Override
+      protected void delivered()
+      {
+         for (Message<?> message: messages)
+         {
+            journalCompleted(message);
+         }
+      }
+
+      @Override
+      protected void failed(RuntimeException cause)
+      {
+         batchFailed(messages, retries, cause);
+      }
+   }
+   
+   /**
+    * A message waiting in the rate limiter or the batcher, with the time the event loop received it.
+    */
+   private static class ReceivedMessage
+   {
+      
+      private final Message<?> message;
+      
+      private final long receivedNanos;
+      
+      private ReceivedMessage(Message<?> message, long receivedNanos)
+      {
+         this.message = message;
+         this.receivedNanos = receivedNanos;
       }
    }
 
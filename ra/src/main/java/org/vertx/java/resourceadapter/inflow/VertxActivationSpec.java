@@ -21,6 +21,7 @@
  */
 package org.vertx.java.resourceadapter.inflow;
 
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,18 +38,125 @@ import org.vertx.java.resourceadapter.AbstractJcaBase;
  *
  * @version $Revision: $
  */
-@Activation(messageListeners = { VertxListener.class })
+@Activation(messageListeners = { VertxListener.class, VertxBatchListener.class, VertxStreamListener.class })
 public class VertxActivationSpec extends AbstractJcaBase implements ActivationSpec
 {
 
    /** The logger */
    private static Logger log = Logger.getLogger(VertxActivationSpec.class.getName());
 
+   /** Default maximum number of messages delivered to the endpoint concurrently */
+   public static final int DEFAULT_MAX_CONCURRENCY = 15;
+
+   /** Default maximum number of messages waiting for delivery */
+   public static final int DEFAULT_MAX_QUEUE_DEPTH = 1000;
+
+   /** Default lowest concurrency of the adaptive concurrency limit */
+   public static final int DEFAULT_MIN_CONCURRENCY = 1;
+
+   /** Default ratio of the recent latency to the baseline latency which lowers the adaptive concurrency limit */
+   public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+   /** Default maximum number of messages delivered to a VertxBatchListener at once */
+   public static final int DEFAULT_BATCH_SIZE = 100;
+
+   /** Default maximum milliseconds a batch waits to be filled */
+   public static final long DEFAULT_MAX_LINGER_MILLIS = 100L;
+
+   /** Default maximum number of messages delivered in one transaction of a transacted endpoint */
+   public static final int DEFAULT_TRANSACTION_BATCH_SIZE = 1;
+
+   /** Default milliseconds before the first retry of a failed delivery */
+   public static final long DEFAULT_RETRY_INITIAL_DELAY_MILLIS = 100L;
+
+   /** Default maximum milliseconds before a retry of a failed delivery */
+   public static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = 10000L;
+
+   /** Default size of a journal segment file in bytes */
+   public static final int DEFAULT_JOURNAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+   /** Default maximum number of chunks of a stream held in memory ahead of the reading */
+   public static final int DEFAULT_STREAM_WINDOW = 4;
+
+   /** Default milliseconds the next chunk of a stream is waited for */
+   public static final long DEFAULT_STREAM_TIMEOUT_MILLIS = 30000L;
+
+   /** Delivery mode running the endpoint on the WorkManager of the application server */
+   public static final String DELIVERY_MODE_WORK_MANAGER = "WorkManager";
+
+   /** Delivery mode running the endpoint on a thread pool owned by the activation */
+   public static final String DELIVERY_MODE_THREAD_POOL = "ThreadPool";
+
+   /** Delivery mode running the endpoint on virtual threads, falls back to ThreadPool if the JVM does not support them */
+   public static final String DELIVERY_MODE_VIRTUAL_THREAD = "VirtualThread";
+
    /** The resource adapter */
    private ResourceAdapter ra;
    
    private String address;
    
+   private Integer maxConcurrency;
+   
+   private Integer maxQueueDepth;
+   
+   private Boolean adaptiveConcurrency;
+   
+   private Integer minConcurrency;
+   
+   private Double latencyTolerance;
+   
+   private Integer batchSize;
+   
+   private Long maxLingerMillis;
+   
+   private Integer transactionBatchSize;
+   
+   private String orderingKey;
+   
+   private String keyExtractor;
+   
+   private Integer orderingLanes;
+   
+   private String selector;
+   
+   private String conflationKey;
+   
+   private String deadlineField;
+   
+   private String messageFilter;
+   
+   private Integer highWatermark;
+   
+   private Integer lowWatermark;
+   
+   private Integer maxMessagesPerSecond;
+   
+   private Integer burstSize;
+   
+   private Integer rateLimitQueueDepth;
+   
+   private Integer maxRetries;
+   
+   private Long retryInitialDelayMillis;
+   
+   private Long retryMaxDelayMillis;
+   
+   private String deadLetterAddress;
+   
+   private String journalDirectory;
+   
+   private Integer journalSegmentSize;
+   
+   private Integer streamWindow;
+   
+   private Long streamTimeoutMillis;
+   
+   private Boolean localOnly;
+   
+   private String deliveryMode;
+   
+   private Integer deliveryThreads;
+   
 
    /**
     * @return the address
@@ -59,7 +167,15 @@ public class VertxActivationSpec extends AbstractJcaBase implements ActivationSp
    }
 
    /**
-    * @param address the address to set
+    * @return the addresses in the comma separated address list, including the prefix patterns
+    */
+   public List<String> getAddresses()
+   {
+      return AddressResolver.split(address);
+   }
+
+   /**
+    * @param address the address to set, or a comma separated list of addresses and prefix patterns like 'orders.*'
     */
    @ConfigProperty
    public void setAddress(String address)
@@ -67,6 +183,662 @@ public class VertxActivationSpec extends AbstractJcaBase implements ActivationSp
       this.address = address;
    }
 
+   /**
+    * @return the maxConcurrency
+    */
+   public Integer getMaxConcurrency()
+   {
+      if (maxConcurrency == null)
+      {
+         return Integer.valueOf(DEFAULT_MAX_CONCURRENCY);
+      }
+      return maxConcurrency;
+   }
+
+   /**
+    * @param maxConcurrency the maximum number of messages delivered to the endpoint concurrently
+    */
+   @ConfigProperty(defaultValue = "15")
+   public void setMaxConcurrency(Integer maxConcurrency)
+   {
+      this.maxConcurrency = maxConcurrency;
+   }
+
+   /**
+    * @return the maxQueueDepth
+    */
+   public Integer getMaxQueueDepth()
+   {
+      if (maxQueueDepth == null)
+      {
+         return Integer.valueOf(DEFAULT_MAX_QUEUE_DEPTH);
+      }
+      return maxQueueDepth;
+   }
+
+   /**
+    * @param maxQueueDepth the maximum number of messages waiting for delivery, messages beyond it are rejected
+    */
+   @ConfigProperty(defaultValue = "1000")
+   public void setMaxQueueDepth(Integer maxQueueDepth)
+   {
+      this.maxQueueDepth = maxQueueDepth;
+   }
+
+   /**
+    * @return the adaptiveConcurrency, default to false
+    */
+   public Boolean getAdaptiveConcurrency()
+   {
+      if (adaptiveConcurrency == null)
+      {
+         return Boolean.FALSE;
+      }
+      return adaptiveConcurrency;
+   }
+
+   /**
+    * @param adaptiveConcurrency whether the concurrency follows the delivery latency, between minConcurrency and maxConcurrency
+    */
+   @ConfigProperty(defaultValue = "false")
+   public void setAdaptiveConcurrency(Boolean adaptiveConcurrency)
+   {
+      this.adaptiveConcurrency = adaptiveConcurrency;
+   }
+
+   /**
+    * @return the minConcurrency
+    */
+   public Integer getMinConcurrency()
+   {
+      if (minConcurrency == null)
+      {
+         return Integer.valueOf(DEFAULT_MIN_CONCURRENCY);
+      }
+      return minConcurrency;
+   }
+
+   /**
+    * @param minConcurrency the lowest number of messages delivered concurrently with the adaptive concurrency
+    */
+   @ConfigProperty(defaultValue = "1")
+   public void setMinConcurrency(Integer minConcurrency)
+   {
+      this.minConcurrency = minConcurrency;
+   }
+
+   /**
+    * @return the latencyTolerance
+    */
+   public Double getLatencyTolerance()
+   {
+      if (latencyTolerance == null)
+      {
+         return Double.valueOf(DEFAULT_LATENCY_TOLERANCE);
+      }
+      return latencyTolerance;
+   }
+
+   /**
+    * @param latencyTolerance how many times the baseline latency the recent latency can reach before the adaptive concurrency is lowered
+    */
+   @ConfigProperty(defaultValue = "2.0")
+   public void setLatencyTolerance(Double latencyTolerance)
+   {
+      this.latencyTolerance = latencyTolerance;
+   }
+
+   /**
+    * @return the batchSize
+    */
+   public Integer getBatchSize()
+   {
+      if (batchSize == null)
+      {
+         return Integer.valueOf(DEFAULT_BATCH_SIZE);
+      }
+      return batchSize;
+   }
+
+   /**
+    * @param batchSize the maximum number of messages delivered to a VertxBatchListener at once
+    */
+   @ConfigProperty(defaultValue = "100")
+   public void setBatchSize(Integer batchSize)
+   {
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * @return the maxLingerMillis
+    */
+   public Long getMaxLingerMillis()
+   {
+      if (maxLingerMillis == null)
+      {
+         return Long.valueOf(DEFAULT_MAX_LINGER_MILLIS);
+      }
+      return maxLingerMillis;
+   }
+
+   /**
+    * @param maxLingerMillis the maximum milliseconds a batch waits to be filled before it is delivered
+    */
+   @ConfigProperty(defaultValue = "100")
+   public void setMaxLingerMillis(Long maxLingerMillis)
+   {
+      this.maxLingerMillis = maxLingerMillis;
+   }
+
+   /**
+    * @return the transactionBatchSize
+    */
+   public Integer getTransactionBatchSize()
+   {
+      if (transactionBatchSize == null)
+      {
+         return Integer.valueOf(DEFAULT_TRANSACTION_BATCH_SIZE);
+      }
+      return transactionBatchSize;
+   }
+
+   /**
+    * @param transactionBatchSize the maximum number of messages delivered in one transaction when the delivery is transacted
+    */
+   @ConfigProperty(defaultValue = "1")
+   public void setTransactionBatchSize(Integer transactionBatchSize)
+   {
+      this.transactionBatchSize = transactionBatchSize;
+   }
+
+   /**
+    * @return the orderingKey
+    */
+   public String getOrderingKey()
+   {
+      return orderingKey;
+   }
+
+   /**
+    * @param orderingKey the dot separated path of the JsonObject body field used as the ordering key
+    */
+   @ConfigProperty
+   public void setOrderingKey(String orderingKey)
+   {
+      this.orderingKey = orderingKey;
+   }
+
+   /**
+    * @return the keyExtractor
+    */
+   public String getKeyExtractor()
+   {
+      return keyExtractor;
+   }
+
+   /**
+    * @param keyExtractor the class name of the KeyExtractor used to get the ordering key
+    */
+   @ConfigProperty
+   public void setKeyExtractor(String keyExtractor)
+   {
+      this.keyExtractor = keyExtractor;
+   }
+
+   /**
+    * @return the selector
+    */
+   public String getSelector()
+   {
+      return selector;
+   }
+
+   /**
+    * @param selector the conditions on the JsonObject body a message needs to match to be delivered, like "type == 'refund'"
+    */
+   @ConfigProperty
+   public void setSelector(String selector)
+   {
+      this.selector = selector;
+   }
+
+   /**
+    * @return the messageFilter
+    */
+   public String getMessageFilter()
+   {
+      return messageFilter;
+   }
+
+   /**
+    * @param messageFilter the class name of the MessageFilter selecting the delivered messages
+    */
+   @ConfigProperty
+   public void setMessageFilter(String messageFilter)
+   {
+      this.messageFilter = messageFilter;
+   }
+
+   /**
+    * @return true if the messages are filtered before they are delivered
+    */
+   public boolean isFiltered()
+   {
+      return isSpecified(selector) || isSpecified(messageFilter);
+   }
+
+   /**
+    * @return the conflationKey
+    */
+   public String getConflationKey()
+   {
+      return conflationKey;
+   }
+
+   /**
+    * @param conflationKey the field path in the JsonObject body of the key whose newest queued message supersedes the older one
+    */
+   @ConfigProperty
+   public void setConflationKey(String conflationKey)
+   {
+      this.conflationKey = conflationKey;
+   }
+
+   /**
+    * @return true if only the newest queued message per key is delivered
+    */
+   public boolean isConflated()
+   {
+      return isSpecified(conflationKey);
+   }
+
+   /**
+    * @return the deadlineField
+    */
+   public String getDeadlineField()
+   {
+      return deadlineField;
+   }
+
+   /**
+    * @param deadlineField the field path in the JsonObject body of the time, in milliseconds since the epoch, after which the message is not delivered
+    */
+   @ConfigProperty
+   public void setDeadlineField(String deadlineField)
+   {
+      this.deadlineField = deadlineField;
+   }
+
+   /**
+    * @return true if the messages past their deadline are dropped before their delivery
+    */
+   public boolean isDeadlineEnforced()
+   {
+      return isSpecified(deadlineField);
+   }
+
+   /**
+    * @return the orderingLanes, default to maxConcurrency
+    */
+   public Integer getOrderingLanes()
+   {
+      if (orderingLanes == null)
+      {
+         return getMaxConcurrency();
+      }
+      return orderingLanes;
+   }
+
+   /**
+    * @param orderingLanes the number of serial lanes messages are partitioned to by their ordering key
+    */
+   @ConfigProperty
+   public void setOrderingLanes(Integer orderingLanes)
+   {
+      this.orderingLanes = orderingLanes;
+   }
+
+   /**
+    * @return true if messages with the same ordering key are delivered in order
+    */
+   public boolean isOrdered()
+   {
+      return isSpecified(orderingKey) || isSpecified(keyExtractor);
+   }
+
+   /**
+    * @return the highWatermark, null if the inflow is never paused
+    */
+   public Integer getHighWatermark()
+   {
+      return highWatermark;
+   }
+
+   /**
+    * @param highWatermark the queue size which pauses the inflow by unregistering the event bus handler
+    */
+   @ConfigProperty
+   public void setHighWatermark(Integer highWatermark)
+   {
+      this.highWatermark = highWatermark;
+   }
+
+   /**
+    * @return the lowWatermark, default to half of the highWatermark
+    */
+   public Integer getLowWatermark()
+   {
+      if (lowWatermark == null && highWatermark != null)
+      {
+         return Integer.valueOf(highWatermark.intValue() / 2);
+      }
+      return lowWatermark;
+   }
+
+   /**
+    * @param lowWatermark the queue size which resumes the paused inflow
+    */
+   @ConfigProperty
+   public void setLowWatermark(Integer lowWatermark)
+   {
+      this.lowWatermark = lowWatermark;
+   }
+
+   /**
+    * @return the maxMessagesPerSecond, null if the inflow is not rate limited
+    */
+   public Integer getMaxMessagesPerSecond()
+   {
+      return maxMessagesPerSecond;
+   }
+
+   /**
+    * @param maxMessagesPerSecond the maximum number of messages handed over for delivery per second
+    */
+   @ConfigProperty
+   public void setMaxMessagesPerSecond(Integer maxMessagesPerSecond)
+   {
+      this.maxMessagesPerSecond = maxMessagesPerSecond;
+   }
+
+   /**
+    * @return the burstSize, default to maxMessagesPerSecond
+    */
+   public Integer getBurstSize()
+   {
+      if (burstSize == null)
+      {
+         return maxMessagesPerSecond;
+      }
+      return burstSize;
+   }
+
+   /**
+    * @param burstSize the maximum number of messages handed over at once after an idle period
+    */
+   @ConfigProperty
+   public void setBurstSize(Integer burstSize)
+   {
+      this.burstSize = burstSize;
+   }
+
+   /**
+    * @return the rateLimitQueueDepth, default to 0
+    */
+   public Integer getRateLimitQueueDepth()
+   {
+      if (rateLimitQueueDepth == null)
+      {
+         return Integer.valueOf(0);
+      }
+      return rateLimitQueueDepth;
+   }
+
+   /**
+    * @param rateLimitQueueDepth the maximum number of messages waiting for the rate limit, the others are rejected
+    */
+   @ConfigProperty(defaultValue = "0")
+   public void setRateLimitQueueDepth(Integer rateLimitQueueDepth)
+   {
+      this.rateLimitQueueDepth = rateLimitQueueDepth;
+   }
+
+   /**
+    * @return the maxRetries, default to 0
+    */
+   public Integer getMaxRetries()
+   {
+      if (maxRetries == null)
+      {
+         return Integer.valueOf(0);
+      }
+      return maxRetries;
+   }
+
+   /**
+    * @param maxRetries the maximum number of retries of a delivery whose endpoint throws an exception
+    */
+   @ConfigProperty(defaultValue = "0")
+   public void setMaxRetries(Integer maxRetries)
+   {
+      this.maxRetries = maxRetries;
+   }
+
+   /**
+    * @return the retryInitialDelayMillis
+    */
+   public Long getRetryInitialDelayMillis()
+   {
+      if (retryInitialDelayMillis == null)
+      {
+         return Long.valueOf(DEFAULT_RETRY_INITIAL_DELAY_MILLIS);
+      }
+      return retryInitialDelayMillis;
+   }
+
+   /**
+    * @param retryInitialDelayMillis the milliseconds before the first retry, doubled on each retry
+    */
+   @ConfigProperty(defaultValue = "100")
+   public void setRetryInitialDelayMillis(Long retryInitialDelayMillis)
+   {
+      this.retryInitialDelayMillis = retryInitialDelayMillis;
+   }
+
+   /**
+    * @return the retryMaxDelayMillis
+    */
+   public Long getRetryMaxDelayMillis()
+   {
+      if (retryMaxDelayMillis == null)
+      {
+         return Long.valueOf(DEFAULT_RETRY_MAX_DELAY_MILLIS);
+      }
+      return retryMaxDelayMillis;
+   }
+
+   /**
+    * @param retryMaxDelayMillis the maximum milliseconds before a retry
+    */
+   @ConfigProperty(defaultValue = "10000")
+   public void setRetryMaxDelayMillis(Long retryMaxDelayMillis)
+   {
+      this.retryMaxDelayMillis = retryMaxDelayMillis;
+   }
+
+   /**
+    * @return the deadLetterAddress, null if the failed messages are not forwarded
+    */
+   public String getDeadLetterAddress()
+   {
+      return deadLetterAddress;
+   }
+
+   /**
+    * @param deadLetterAddress the address the body of a message is sent to when its delivery failed after all retries
+    */
+   @ConfigProperty
+   public void setDeadLetterAddress(String deadLetterAddress)
+   {
+      this.deadLetterAddress = deadLetterAddress;
+   }
+
+   /**
+    * @return the journalDirectory, null if the messages are not journaled
+    */
+   public String getJournalDirectory()
+   {
+      return journalDirectory;
+   }
+
+   /**
+    * @param journalDirectory the directory of the journal the messages are appended to before they are delivered
+    */
+   @ConfigProperty
+   public void setJournalDirectory(String journalDirectory)
+   {
+      this.journalDirectory = journalDirectory;
+   }
+
+   /**
+    * @return true if the messages are journaled before they are delivered
+    */
+   public boolean isJournaled()
+   {
+      return isSpecified(journalDirectory);
+   }
+
+   /**
+    * @return the journalSegmentSize
+    */
+   public Integer getJournalSegmentSize()
+   {
+      if (journalSegmentSize == null)
+      {
+         return Integer.valueOf(DEFAULT_JOURNAL_SEGMENT_SIZE);
+      }
+      return journalSegmentSize;
+   }
+
+   /**
+    * @param journalSegmentSize the size in bytes of a journal segment file
+    */
+   @ConfigProperty(defaultValue = "67108864")
+   public void setJournalSegmentSize(Integer journalSegmentSize)
+   {
+      this.journalSegmentSize = journalSegmentSize;
+   }
+
+   /**
+    * @return the streamWindow
+    */
+   public Integer getStreamWindow()
+   {
+      if (streamWindow == null)
+      {
+         return Integer.valueOf(DEFAULT_STREAM_WINDOW);
+      }
+      return streamWindow;
+   }
+
+   /**
+    * @param streamWindow the maximum number of chunks of a stream held in memory ahead of the VertxStreamListener
+    */
+   @ConfigProperty(defaultValue = "4")
+   public void setStreamWindow(Integer streamWindow)
+   {
+      this.streamWindow = streamWindow;
+   }
+
+   /**
+    * @return the streamTimeoutMillis
+    */
+   public Long getStreamTimeoutMillis()
+   {
+      if (streamTimeoutMillis == null)
+      {
+         return Long.valueOf(DEFAULT_STREAM_TIMEOUT_MILLIS);
+      }
+      return streamTimeoutMillis;
+   }
+
+   /**
+    * @param streamTimeoutMillis the milliseconds the next chunk of a stream is waited for
+    */
+   @ConfigProperty(defaultValue = "30000")
+   public void setStreamTimeoutMillis(Long streamTimeoutMillis)
+   {
+      this.streamTimeoutMillis = streamTimeoutMillis;
+   }
+
+   /**
+    * @return the localOnly, default to false
+    */
+   public Boolean getLocalOnly()
+   {
+      if (localOnly == null)
+      {
+         return Boolean.FALSE;
+      }
+      return localOnly;
+   }
+
+   /**
+    * @param localOnly whether the handler only receives messages sent within this JVM
+    */
+   @ConfigProperty(defaultValue = "false")
+   public void setLocalOnly(Boolean localOnly)
+   {
+      this.localOnly = localOnly;
+   }
+
+   /**
+    * @return the deliveryMode, default to WorkManager
+    */
+   public String getDeliveryMode()
+   {
+      if (!isSpecified(deliveryMode))
+      {
+         return DELIVERY_MODE_WORK_MANAGER;
+      }
+      return deliveryMode.trim();
+   }
+
+   /**
+    * @param deliveryMode where the endpoint is invoked: WorkManager, ThreadPool or VirtualThread
+    */
+   @ConfigProperty(defaultValue = DELIVERY_MODE_WORK_MANAGER)
+   public void setDeliveryMode(String deliveryMode)
+   {
+      this.deliveryMode = deliveryMode;
+   }
+
+   /**
+    * @return the deliveryThreads, default to maxConcurrency
+    */
+   public Integer getDeliveryThreads()
+   {
+      if (deliveryThreads == null)
+      {
+         return getMaxConcurrency();
+      }
+      return deliveryThreads;
+   }
+
+   /**
+    * @param deliveryThreads the number of threads of the ThreadPool delivery mode
+    */
+   @ConfigProperty
+   public void setDeliveryThreads(Integer deliveryThreads)
+   {
+      this.deliveryThreads = deliveryThreads;
+   }
+
+   private static boolean isSpecified(String value)
+   {
+      return value != null && value.trim().length() > 0;
+   }
+
    /**
     * Default constructor
     */
@@ -84,10 +856,149 @@ public class VertxActivationSpec extends AbstractJcaBase implements ActivationSp
    public void validate() throws InvalidPropertyException
    {
       log.finest("validate()");
-      if (this.address == null || this.address.length() == 0)
+      if (getAddresses().isEmpty())
       {
          throw new InvalidPropertyException("Address must be specified.");
       }
+      for (String entry: getAddresses())
+      {
+         int wildcard = entry.indexOf(AddressResolver.PATTERN_SUFFIX);
+         if (wildcard != -1 && wildcard != entry.length() - 1)
+         {
+            throw new InvalidPropertyException("Only prefix patterns ending with '*' are supported: " + entry);
+         }
+      }
+      if (getMaxConcurrency().intValue() < 1)
+      {
+         throw new InvalidPropertyException("maxConcurrency must be positive.");
+      }
+      if (getMaxQueueDepth().intValue() < 0)
+      {
+         throw new InvalidPropertyException("maxQueueDepth can't be negative.");
+      }
+      if (getAdaptiveConcurrency().booleanValue())
+      {
+         if (getMinConcurrency().intValue() < 1 || getMinConcurrency().intValue() > getMaxConcurrency().intValue())
+         {
+            throw new InvalidPropertyException("minConcurrency must be between 1 and maxConcurrency.");
+         }
+         if (!(getLatencyTolerance().doubleValue() > 1.0))
+         {
+            throw new InvalidPropertyException("latencyTolerance must be greater than 1.");
+         }
+      }
+      if (getBatchSize().intValue() < 1)
+      {
+         throw new InvalidPropertyException("batchSize must be positive.");
+      }
+      if (getMaxLingerMillis().longValue() < 1)
+      {
+         throw new InvalidPropertyException("maxLingerMillis must be positive.");
+      }
+      if (getTransactionBatchSize().intValue() < 1)
+      {
+         throw new InvalidPropertyException("transactionBatchSize must be positive.");
+      }
+      if (isSpecified(this.orderingKey) && isSpecified(this.keyExtractor))
+      {
+         throw new InvalidPropertyException("Only one of orderingKey and keyExtractor can be specified.");
+      }
+      if (isConflated() && isOrdered())
+      {
+         throw new InvalidPropertyException("conflationKey can't be used with orderingKey or keyExtractor.");
+      }
+      if (isOrdered() && getMaxRetries().intValue() > 0)
+      {
+         // a retry waits on a timer, outside its lane, so the next messages of its key would pass it
+         throw new InvalidPropertyException("maxRetries can't be used with orderingKey or keyExtractor.");
+      }
+      if (isSpecified(this.selector) && isSpecified(this.messageFilter))
+      {
+         throw new InvalidPropertyException("Only one of selector and messageFilter can be specified.");
+      }
+      if (isSpecified(this.selector))
+      {
+         try
+         {
+            new JsonSelectorMessageFilter(this.selector);
+         }
+         catch (IllegalArgumentException e)
+         {
+            throw new InvalidPropertyException("Invalid selector: " + e.getMessage());
+         }
+      }
+      if (getOrderingLanes().intValue() < 1)
+      {
+         throw new InvalidPropertyException("orderingLanes must be positive.");
+      }
+      String mode = getDeliveryMode();
+      if (!DELIVERY_MODE_WORK_MANAGER.equalsIgnoreCase(mode) && !DELIVERY_MODE_THREAD_POOL.equalsIgnoreCase(mode)
+            && !DELIVERY_MODE_VIRTUAL_THREAD.equalsIgnoreCase(mode))
+      {
+         throw new InvalidPropertyException("Unknown deliveryMode: " + mode);
+      }
+      if (getDeliveryThreads().intValue() < 1)
+      {
+         throw new InvalidPropertyException("deliveryThreads must be positive.");
+      }
+      if (this.highWatermark != null)
+      {
+         if (this.highWatermark.intValue() < 1)
+         {
+            throw new InvalidPropertyException("highWatermark must be positive.");
+         }
+         if (getLowWatermark().intValue() < 0 || getLowWatermark().intValue() >= this.highWatermark.intValue())
+         {
+            throw new InvalidPropertyException("lowWatermark must be less than highWatermark.");
+         }
+         if (this.highWatermark.intValue() > getMaxQueueDepth().intValue())
+         {
+            log.log(Level.WARNING, "highWatermark is greater than maxQueueDepth, messages will be rejected before the inflow is paused.");
+         }
+      }
+      if (this.maxMessagesPerSecond != null)
+      {
+         if (this.maxMessagesPerSecond.intValue() < 1)
+         {
+            throw new InvalidPropertyException("maxMessagesPerSecond must be positive.");
+         }
+         if (getBurstSize().intValue() < 1)
+         {
+            throw new InvalidPropertyException("burstSize must be positive.");
+         }
+         if (getRateLimitQueueDepth().intValue() < 0)
+         {
+            throw new InvalidPropertyException("rateLimitQueueDepth can't be negative.");
+         }
+      }
+      if (getMaxRetries().intValue() < 0)
+      {
+         throw new InvalidPropertyException("maxRetries can't be negative.");
+      }
+      if (getRetryInitialDelayMillis().longValue() < 1)
+      {
+         throw new InvalidPropertyException("retryInitialDelayMillis must be positive.");
+      }
+      if (getRetryMaxDelayMillis().longValue() < getRetryInitialDelayMillis().longValue())
+      {
+         throw new InvalidPropertyException("retryMaxDelayMillis can't be less than retryInitialDelayMillis.");
+      }
+      if (getStreamWindow().intValue() < 1)
+      {
+         throw new InvalidPropertyException("streamWindow must be positive.");
+      }
+      if (getStreamTimeoutMillis().longValue() < 1)
+      {
+         throw new InvalidPropertyException("streamTimeoutMillis must be positive.");
+      }
+      if (getJournalSegmentSize().intValue() < 1024)
+      {
+         throw new InvalidPropertyException("journalSegmentSize must be at least 1024 bytes.");
+      }
+      if (isSpecified(this.deadLetterAddress) && getAddresses().contains(this.deadLetterAddress.trim()))
+      {
+         throw new InvalidPropertyException("deadLetterAddress can't be one of the addresses of the activation.");
+      }
       if (this.getClusterConfigFile() == null || this.getClusterConfigFile().length() == 0)
       {
          log.log(Level.WARNING, "Cluster configuration file is not specified, Will use default-cluster.xml provided by the resource adapter.");
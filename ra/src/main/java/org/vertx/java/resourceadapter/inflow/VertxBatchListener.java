@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.List;
+
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * 
+ * MDB message listener interface which receives the Vert.x messages in batches.
+ * 
+ * Messages are grouped up to <code>batchSize</code> of the activation spec, a batch which is not full
+ * is delivered after <code>maxLingerMillis</code> milliseconds.
+ *
+ */
+public interface VertxBatchListener
+{
+
+   /**
+    * On a batch of Vertx Messages.
+    * 
+    * @param messages the messages sent from vertx platform, in the order they are received.
+    */
+   void onMessages(List<Message<?>> messages);
+   
+}
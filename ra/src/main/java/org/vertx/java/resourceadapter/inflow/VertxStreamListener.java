@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.io.InputStream;
+
+/**
+ * 
+ * MDB message listener interface which receives a large payload as a stream, fed as its chunks arrive.
+ * 
+ * The payload is sent by a {@link ChunkedStreamSender}, at most <code>streamWindow</code> chunks are held
+ * in memory ahead of the reading, so a payload of any size is processed without being held whole in the heap.
+ *
+ */
+public interface VertxStreamListener
+{
+
+   /**
+    * On a stream.
+    * 
+    * @param address the address the stream is sent to
+    * @param stream the payload, a read blocks until the next chunk arrives and throws an IOException if the stream is broken.
+    *               Returning before the end of the stream aborts the sender.
+    */
+   void onStream(String address, InputStream stream);
+   
+}
@@ -0,0 +1,81 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test Case of the latency based concurrency limit.
+ *
+ */
+public class AdaptiveConcurrencyLimitTestCase
+{
+
+   private static final long FLAT_NANOS = 1000000L;
+
+   /**
+    * The limit grows to the maximum while the latency stays flat.
+    */
+   @Test
+   public void testGrowWhileLatencyFlat()
+   {
+      AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 20, 2.0);
+      Assert.assertEquals(2, limit.getLimit());
+      for (int i = 0; i < 100; i++)
+      {
+         limit.update(FLAT_NANOS, false);
+      }
+      Assert.assertEquals(20, limit.getLimit());
+   }
+
+   /**
+    * The limit shrinks when the latency rises, down to the minimum, then grows again once the latency is flat.
+    */
+   @Test
+   public void testShrinkWhenLatencyRises()
+   {
+      AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 20, 2.0);
+      for (int i = 0; i < 100; i++)
+      {
+         limit.update(FLAT_NANOS, false);
+      }
+      int previous = limit.getLimit();
+      for (int i = 0; i < 100; i++)
+      {
+         limit.update(FLAT_NANOS * 10, false);
+      }
+      Assert.assertTrue(limit.getLimit() < previous);
+
+      for (int i = 0; i < 500; i++)
+      {
+         limit.update(FLAT_NANOS * 10, true);
+      }
+      Assert.assertEquals(2, limit.getLimit());
+
+      previous = limit.getLimit();
+      for (int i = 0; i < 2000; i++)
+      {
+         limit.update(FLAT_NANOS, false);
+      }
+      Assert.assertTrue(limit.getLimit() > previous);
+   }
+
+   /**
+    * Failed deliveries shrink the limit at most once per limit deliveries.
+    */
+   @Test
+   public void testShrinkOnFailure()
+   {
+      AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 10, 2.0);
+      for (int i = 0; i < 20; i++)
+      {
+         limit.update(FLAT_NANOS, false);
+      }
+      Assert.assertEquals(10, limit.getLimit());
+      Assert.assertEquals(9, limit.update(FLAT_NANOS, true));
+      Assert.assertEquals(9, limit.update(FLAT_NANOS, true));
+   }
+
+}
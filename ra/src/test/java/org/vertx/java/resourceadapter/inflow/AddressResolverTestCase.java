@@ -0,0 +1,184 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.impl.VertxInternal;
+import org.vertx.java.core.spi.cluster.AsyncMap;
+import org.vertx.java.core.spi.cluster.AsyncMultiMap;
+import org.vertx.java.core.spi.cluster.ClusterManager;
+import org.vertx.java.core.spi.cluster.NodeListener;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.MultiMap;
+
+/**
+ * Test Case of the address list resolution.
+ *
+ */
+public class AddressResolverTestCase
+{
+
+   /**
+    * Entries are trimmed, empty and duplicated entries are dropped.
+    */
+   @Test
+   public void testSplit()
+   {
+      Assert.assertEquals(Arrays.asList("a", "b.*"), AddressResolver.split(" a, ,b.*,a "));
+      Assert.assertTrue(AddressResolver.split(null).isEmpty());
+      Assert.assertTrue(AddressResolver.isPattern("b.*"));
+      Assert.assertFalse(AddressResolver.isPattern("b"));
+   }
+
+   /**
+    * A pattern is replaced by the cluster addresses with its prefix, plain addresses are kept.
+    */
+   @Test
+   public void testResolvePattern()
+   {
+      List<String> cluster = Arrays.asList("orders.new", "orders.cancel", "payments.new");
+      Assert.assertEquals(Arrays.asList("audit", "orders.new", "orders.cancel"),
+         AddressResolver.resolve("audit, orders.*", cluster));
+      Assert.assertEquals(Arrays.asList("orders.new"), AddressResolver.resolve("orders.new, orders.n*", cluster));
+      Assert.assertTrue(AddressResolver.resolve("shipping.*", cluster).isEmpty());
+   }
+
+   /**
+    * The subscriptions are read from the cluster manager of the given Vert.x platform only.
+    */
+   @Test
+   public void testClusterAddresses()
+   {
+      Vertx vertx = clusteredVertx(new LinkedHashSet<Object>(Arrays.asList("orders.new", "payments.new")));
+      Vertx other = clusteredVertx(new LinkedHashSet<Object>(Arrays.asList("orders.cancel")));
+      Assert.assertEquals(Arrays.asList("orders.new"), AddressResolver.resolve("orders.*", vertx));
+      Assert.assertEquals(Arrays.asList("orders.cancel"), AddressResolver.resolve("orders.*", other));
+   }
+
+   /**
+    * A Vert.x platform which is not clustered resolves no pattern.
+    */
+   @Test
+   public void testNotClustered()
+   {
+      Vertx vertx = VertxFactory.newVertx();
+      try
+      {
+         Assert.assertTrue(AddressResolver.clusterAddresses(vertx).isEmpty());
+         Assert.assertEquals(Arrays.asList("audit"), AddressResolver.resolve("audit, orders.*", vertx));
+      }
+      finally
+      {
+         vertx.stop();
+      }
+   }
+
+   private static Vertx clusteredVertx(Set<Object> subscriptions)
+   {
+      final ClusterManager clusterManager = new HazelcastClusterManager(hazelcast(subscriptions));
+      return (Vertx)Proxy.newProxyInstance(VertxInternal.class.getClassLoader(), new Class<?>[] { VertxInternal.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return "clusterManager".equals(method.getName()) ? clusterManager : null;
+            }
+         });
+   }
+
+   private static HazelcastInstance hazelcast(final Set<Object> subscriptions)
+   {
+      final MultiMap<?, ?> subs = (MultiMap<?, ?>)Proxy.newProxyInstance(MultiMap.class.getClassLoader(),
+         new Class<?>[] { MultiMap.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return "keySet".equals(method.getName()) ? subscriptions : null;
+            }
+         });
+      return (HazelcastInstance)Proxy.newProxyInstance(HazelcastInstance.class.getClassLoader(),
+         new Class<?>[] { HazelcastInstance.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if ("getMultiMap".equals(method.getName()))
+               {
+                  return "subs".equals(args[0]) ? subs : null;
+               }
+               return null;
+            }
+         });
+   }
+
+   /**
+    * Holds its Hazelcast instance like the Vert.x Hazelcast cluster manager.
+    */
+   private static class HazelcastClusterManager implements ClusterManager
+   {
+
+      @SuppressWarnings("unused")
+      private final HazelcastInstance hazelcast;
+
+      HazelcastClusterManager(HazelcastInstance hazelcast)
+      {
+         this.hazelcast = hazelcast;
+      }
+
+      public <K, V> AsyncMultiMap<K, V> getAsyncMultiMap(String name)
+      {
+         return null;
+      }
+
+      public <K, V> AsyncMap<K, V> getAsyncMap(String name)
+      {
+         return null;
+      }
+
+      public <K, V> Map<K, V> getSyncMap(String name)
+      {
+         return null;
+      }
+
+      public String getNodeID()
+      {
+         return null;
+      }
+
+      public List<String> getNodes()
+      {
+         return Collections.emptyList();
+      }
+
+      public void nodeListener(NodeListener listener)
+      {
+      }
+
+      public void join()
+      {
+      }
+
+      public void leave()
+      {
+      }
+
+   }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.work.Work;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * Test Case of the pause and resume of the inflow on the queue watermarks.
+ *
+ */
+public class BackpressureControllerTestCase
+{
+
+   private Vertx vertx;
+
+   @Before
+   public void setUp()
+   {
+      vertx = VertxFactory.newVertx();
+   }
+
+   @After
+   public void tearDown()
+   {
+      vertx.stop();
+   }
+
+   /**
+    * The inflow pauses once at the high watermark, even when several threads dispatch, and resumes at the low watermark.
+    */
+   @Test
+   public void testPauseAndResume() throws Exception
+   {
+      final QueueDispatcher dispatcher = new QueueDispatcher();
+      final PauseRecorder recorder = new PauseRecorder();
+      final BackpressureController controller = new BackpressureController(vertx, dispatcher, 10, 2, recorder);
+
+      dispatcher.queueSize = 5;
+      controller.dispatched();
+      Assert.assertFalse(controller.isPaused());
+
+      dispatcher.queueSize = 10;
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 4; i++)
+      {
+         Thread thread = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               for (int j = 0; j < 100; j++)
+               {
+                  controller.dispatched();
+               }
+            }
+         };
+         threads.add(thread);
+         thread.start();
+      }
+      for (Thread thread: threads)
+      {
+         thread.join();
+      }
+      Assert.assertTrue(controller.isPaused());
+      Assert.assertEquals(Collections.singletonList(Boolean.TRUE), recorder.calls);
+
+      dispatcher.queueSize = 3;
+      Thread.sleep(BackpressureController.CHECK_PERIOD_MILLIS * 5);
+      Assert.assertTrue(controller.isPaused());
+
+      dispatcher.queueSize = 2;
+      Assert.assertTrue(recorder.resumed.await(5, TimeUnit.SECONDS));
+      Assert.assertFalse(controller.isPaused());
+      Assert.assertEquals(2, recorder.calls.size());
+      controller.close();
+   }
+
+   /**
+    * A closed controller does not pause nor resume anymore.
+    */
+   @Test
+   public void testClose() throws Exception
+   {
+      QueueDispatcher dispatcher = new QueueDispatcher();
+      PauseRecorder recorder = new PauseRecorder();
+      BackpressureController controller = new BackpressureController(vertx, dispatcher, 10, 2, recorder);
+
+      dispatcher.queueSize = 10;
+      controller.dispatched();
+      controller.close();
+      dispatcher.queueSize = 0;
+      Thread.sleep(BackpressureController.CHECK_PERIOD_MILLIS * 5);
+      Assert.assertEquals(Collections.singletonList(Boolean.TRUE), recorder.calls);
+
+      controller = new BackpressureController(vertx, dispatcher, 10, 2, recorder);
+      controller.close();
+      dispatcher.queueSize = 10;
+      controller.dispatched();
+      Assert.assertFalse(controller.isPaused());
+      Assert.assertEquals(1, recorder.calls.size());
+   }
+
+   private static class PauseRecorder implements Handler<Boolean>
+   {
+      private final List<Boolean> calls = Collections.synchronizedList(new ArrayList<Boolean>());
+
+      private final CountDownLatch resumed = new CountDownLatch(1);
+
+      @Override
+      public void handle(Boolean pause)
+      {
+         calls.add(pause);
+         if (!pause.booleanValue())
+         {
+            resumed.countDown();
+         }
+      }
+   }
+
+   private static class QueueDispatcher implements MessageDispatcher
+   {
+      private volatile int queueSize;
+
+      @Override
+      public boolean dispatch(Message<?> message, Work work)
+      {
+         return true;
+      }
+
+      @Override
+      public int getQueueSize()
+      {
+         return queueSize;
+      }
+
+      @Override
+      public int getActiveCount()
+      {
+         return 0;
+      }
+
+      @Override
+      public void close()
+      {
+      }
+   }
+
+}
@@ -0,0 +1,180 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * Test Case of the receiving end of a chunked stream.
+ *
+ */
+public class ChunkedInputStreamTestCase
+{
+
+   /**
+    * A credit is replied while the window has room, and held back until the reader takes a chunk otherwise.
+    */
+   @Test
+   public void testWindow() throws Exception
+   {
+      ChunkedInputStream stream = new ChunkedInputStream(2, 1000L, 500);
+      ChunkMessage first = new ChunkMessage(0, false, "abcd");
+      ChunkMessage second = new ChunkMessage(1, false, "efgh");
+      ChunkMessage last = new ChunkMessage(2, true, "ij");
+
+      stream.receive(first.message);
+      Assert.assertEquals("replyWithTimeout:1", first.replies.get(0));
+      stream.receive(second.message);
+      Assert.assertTrue(second.replies.isEmpty());
+
+      byte[] data = new byte[4];
+      Assert.assertEquals(4, stream.read(data, 0, 4));
+      Assert.assertEquals("abcd", new String(data, "UTF-8"));
+      Assert.assertEquals("replyWithTimeout:2", second.replies.get(0));
+
+      stream.receive(last.message);
+      Assert.assertEquals(6, stream.available());
+      StringBuilder rest = new StringBuilder();
+      int read;
+      while ((read = stream.read()) != -1)
+      {
+         rest.append((char)read);
+      }
+      Assert.assertEquals("efghij", rest.toString());
+      Assert.assertTrue(last.replies.isEmpty());
+
+      stream.finish(null);
+      Assert.assertEquals("reply:0", last.replies.get(0));
+   }
+
+   /**
+    * A chunk out of sequence breaks the stream.
+    */
+   @Test
+   public void testOutOfSequence() throws Exception
+   {
+      ChunkedInputStream stream = new ChunkedInputStream(2, 1000L, 500);
+      ChunkMessage first = new ChunkMessage(0, false, "abcd");
+      ChunkMessage third = new ChunkMessage(2, true, "ij");
+      stream.receive(first.message);
+      stream.receive(third.message);
+      Assert.assertEquals("fail:500", third.replies.get(0));
+      try
+      {
+         stream.read();
+         Assert.fail("The stream is broken.");
+      }
+      catch (IOException e)
+      {
+         // expected
+      }
+   }
+
+   /**
+    * A chunk of another stream breaks the stream.
+    */
+   @Test
+   public void testOtherStream() throws Exception
+   {
+      ChunkedInputStream stream = new ChunkedInputStream(2, 1000L, 500);
+      ChunkMessage first = new ChunkMessage(0, false, "abcd");
+      ChunkMessage other = new ChunkMessage(43L, 1, true, "ij");
+      stream.receive(first.message);
+      stream.receive(other.message);
+      Assert.assertEquals("fail:500", other.replies.get(0));
+      try
+      {
+         stream.read();
+         Assert.fail("The stream is broken.");
+      }
+      catch (IOException e)
+      {
+         // expected
+      }
+   }
+
+   /**
+    * An endpoint which returns before the end of the stream fails the sender.
+    */
+   @Test
+   public void testNotReadToTheEnd() throws Exception
+   {
+      ChunkedInputStream stream = new ChunkedInputStream(1, 1000L, 500);
+      ChunkMessage first = new ChunkMessage(0, false, "abcd");
+      stream.receive(first.message);
+      Assert.assertTrue(first.replies.isEmpty());
+
+      stream.finish(null);
+      Assert.assertEquals("fail:500", first.replies.get(0));
+   }
+
+   /**
+    * A reader waiting for a chunk which does not come gets an IOException.
+    */
+   @Test
+   public void testTimeout() throws Exception
+   {
+      ChunkedInputStream stream = new ChunkedInputStream(2, 50L, 500);
+      stream.receive(new ChunkMessage(0, false, "").message);
+      try
+      {
+         stream.read();
+         Assert.fail("No chunk is received.");
+      }
+      catch (IOException e)
+      {
+         // expected
+      }
+   }
+
+   /**
+    * A message carrying a chunk, which records its replies.
+    */
+   private static class ChunkMessage
+   {
+
+      private final List<String> replies = new ArrayList<String>();
+
+      private final Message<?> message;
+
+      private ChunkMessage(int sequence, boolean last, String data) throws Exception
+      {
+         this(42L, sequence, last, data);
+      }
+
+      private ChunkMessage(long streamId, int sequence, boolean last, String data) throws Exception
+      {
+         byte[] bytes = data.getBytes("UTF-8");
+         final Buffer body = StreamChunk.encode(streamId, sequence, last, bytes, bytes.length);
+         this.message = (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+            new InvocationHandler()
+            {
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+               {
+                  if ("body".equals(method.getName()))
+                  {
+                     return body;
+                  }
+                  if (args != null && args.length > 0)
+                  {
+                     replies.add(method.getName() + ":" + args[0]);
+                  }
+                  return null;
+               }
+            });
+      }
+   }
+
+}
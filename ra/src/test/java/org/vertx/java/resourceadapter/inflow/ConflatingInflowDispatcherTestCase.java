@@ -0,0 +1,157 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.resource.spi.work.Work;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.resourceadapter.inflow.InflowDispatcherTestCase.CountingWork;
+import org.vertx.java.resourceadapter.inflow.InflowDispatcherTestCase.RecordingWorkManager;
+
+/**
+ * Test Case of the latest value wins dispatching.
+ *
+ */
+public class ConflatingInflowDispatcherTestCase
+{
+
+   /**
+    * A queued work is superseded by a newer one with the same key, which keeps its place in the queue.
+    */
+   @Test
+   public void testNewestPerKey()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      SupersededRecorder superseded = new SupersededRecorder();
+      ConflatingInflowDispatcher dispatcher = new ConflatingInflowDispatcher(InflowExecutors.workManager(workManager),
+         new JsonFieldKeyExtractor("symbol"), 1, 10, superseded);
+
+      CountingWork running = new CountingWork();
+      CountingWork staleA = new CountingWork();
+      CountingWork b = new CountingWork();
+      CountingWork freshA = new CountingWork();
+      Assert.assertTrue(dispatcher.dispatch(message("A"), running));
+      Assert.assertTrue(dispatcher.dispatch(message("A"), staleA));
+      Assert.assertTrue(dispatcher.dispatch(message("B"), b));
+      Assert.assertTrue(dispatcher.dispatch(message("A"), freshA));
+      Assert.assertEquals(2, dispatcher.getQueueSize());
+      Assert.assertEquals(1, superseded.works.size());
+      Assert.assertSame(staleA, superseded.works.get(0));
+
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(1, running.runs);
+      Assert.assertEquals(0, staleA.runs);
+      Assert.assertEquals(1, freshA.runs);
+      Assert.assertEquals(1, b.runs);
+      Assert.assertEquals(0, dispatcher.getQueueSize());
+   }
+
+   /**
+    * Messages without key are queued one by one, and maxQueueDepth bounds the number of keys.
+    */
+   @Test
+   public void testKeylessAndBound()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      SupersededRecorder superseded = new SupersededRecorder();
+      ConflatingInflowDispatcher dispatcher = new ConflatingInflowDispatcher(InflowExecutors.workManager(workManager),
+         new JsonFieldKeyExtractor("symbol"), 1, 2, superseded);
+
+      Assert.assertTrue(dispatcher.dispatch(message("A"), new CountingWork()));
+      Assert.assertTrue(dispatcher.dispatch(message(null), new CountingWork()));
+      Assert.assertTrue(dispatcher.dispatch(message(null), new CountingWork()));
+      Assert.assertFalse(dispatcher.dispatch(message("B"), new CountingWork()));
+      Assert.assertEquals(2, dispatcher.getQueueSize());
+      Assert.assertTrue(superseded.works.isEmpty());
+
+      // the queued works run one after another once the slot is free
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(0, dispatcher.getQueueSize());
+      Assert.assertEquals(0, dispatcher.getActiveCount());
+   }
+
+   /**
+    * The sender of a superseded message gets a failure instead of waiting for its reply timeout.
+    */
+   @Test
+   public void testSupersededFails() throws Exception
+   {
+      Vertx vertx = VertxFactory.newVertx();
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      VertxActivationSpec spec = new VertxActivationSpec();
+      spec.setAddress("prices");
+      spec.setConflationKey("symbol");
+      spec.setMaxConcurrency(1);
+      VertxActivation activation = TestActivations.activate(vertx, workManager, spec, new CopyOnWriteArrayList<Message<?>>());
+      try
+      {
+         List<Integer> runningFailures = new CopyOnWriteArrayList<Integer>();
+         List<Integer> staleFailures = new CopyOnWriteArrayList<Integer>();
+         List<Integer> freshFailures = new CopyOnWriteArrayList<Integer>();
+         activation.handleMessage(TestActivations.replyingMessage("prices", new JsonObject().putString("symbol", "A"), runningFailures));
+         activation.handleMessage(TestActivations.replyingMessage("prices", new JsonObject().putString("symbol", "A"), staleFailures));
+         activation.handleMessage(TestActivations.replyingMessage("prices", new JsonObject().putString("symbol", "A"), freshFailures));
+         Assert.assertEquals(Arrays.asList(Integer.valueOf(VertxActivation.SUPERSEDED_FAILURE)), staleFailures);
+         Assert.assertTrue(runningFailures.isEmpty());
+         Assert.assertTrue(freshFailures.isEmpty());
+      }
+      finally
+      {
+         activation.stop();
+         vertx.stop();
+      }
+   }
+
+   private static Message<?> message(String symbol)
+   {
+      final JsonObject body = new JsonObject();
+      if (symbol != null)
+      {
+         body.putString("symbol", symbol);
+      }
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if ("body".equals(method.getName()))
+               {
+                  return body;
+               }
+               if ("address".equals(method.getName()))
+               {
+                  return "prices";
+               }
+               return method.getName().equals("equals") ? Boolean.valueOf(proxy == args[0]) : null;
+            }
+         });
+   }
+
+   static class SupersededRecorder implements Handler<Work>
+   {
+      final List<Work> works = new ArrayList<Work>();
+
+      @Override
+      public void handle(Work work)
+      {
+         works.add(work);
+      }
+   }
+
+}
@@ -0,0 +1,240 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.resource.spi.work.ExecutionContext;
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkListener;
+import javax.resource.spi.work.WorkManager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test Case of the bounded inflow dispatching.
+ *
+ */
+public class InflowDispatcherTestCase
+{
+
+   /**
+    * Works beyond maxConcurrency are queued, works beyond maxQueueDepth are rejected.
+    */
+   @Test
+   public void testBoundedDispatch()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      InflowDispatcher dispatcher = new InflowDispatcher(InflowExecutors.workManager(workManager), 2, 1);
+
+      Assert.assertTrue(dispatcher.dispatch(new CountingWork()));
+      Assert.assertTrue(dispatcher.dispatch(new CountingWork()));
+      Assert.assertTrue(dispatcher.dispatch(new CountingWork()));
+      Assert.assertFalse(dispatcher.dispatch(new CountingWork()));
+
+      Assert.assertEquals(2, workManager.scheduled.size());
+      Assert.assertEquals(2, dispatcher.getActiveCount());
+      Assert.assertEquals(1, dispatcher.getQueueSize());
+
+      // the slot of a completed work runs the queued one without scheduling it
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(1, workManager.scheduled.size());
+      Assert.assertEquals(1, dispatcher.getActiveCount());
+      Assert.assertEquals(0, dispatcher.getQueueSize());
+
+      while (!workManager.scheduled.isEmpty())
+      {
+         workManager.scheduled.remove(0).run();
+      }
+      Assert.assertEquals(0, dispatcher.getActiveCount());
+   }
+
+   /**
+    * A slot drains the queue on its thread, and is scheduled again once it has run DRAIN_BUDGET works.
+    */
+   @Test
+   public void testDrainBudget()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      int total = InflowDispatcher.DRAIN_BUDGET + 10;
+      InflowDispatcher dispatcher = new InflowDispatcher(InflowExecutors.workManager(workManager), 1, total);
+      List<CountingWork> works = new ArrayList<CountingWork>();
+      for (int i = 0; i < total; i++)
+      {
+         CountingWork work = new CountingWork();
+         works.add(work);
+         Assert.assertTrue(dispatcher.dispatch(work));
+      }
+      Assert.assertEquals(1, workManager.scheduled.size());
+
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(1, works.get(InflowDispatcher.DRAIN_BUDGET - 1).runs);
+      Assert.assertEquals(0, works.get(InflowDispatcher.DRAIN_BUDGET).runs);
+      Assert.assertEquals(1, workManager.scheduled.size());
+      Assert.assertEquals(9, dispatcher.getQueueSize());
+
+      workManager.scheduled.remove(0).run();
+      Assert.assertTrue(workManager.scheduled.isEmpty());
+      Assert.assertEquals(0, dispatcher.getActiveCount());
+      for (CountingWork work: works)
+      {
+         Assert.assertEquals(1, work.runs);
+      }
+   }
+
+   /**
+    * Closing the dispatcher releases the queued works and rejects new ones.
+    */
+   @Test
+   public void testClose()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      InflowDispatcher dispatcher = new InflowDispatcher(InflowExecutors.workManager(workManager), 1, 10);
+      CountingWork queued = new CountingWork();
+      Assert.assertTrue(dispatcher.dispatch(new CountingWork()));
+      Assert.assertTrue(dispatcher.dispatch(queued));
+
+      dispatcher.close();
+      Assert.assertEquals(1, queued.released);
+      Assert.assertEquals(0, queued.runs);
+      Assert.assertFalse(dispatcher.dispatch(new CountingWork()));
+
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(0, dispatcher.getActiveCount());
+      Assert.assertTrue(workManager.scheduled.isEmpty());
+   }
+
+   /**
+    * Lowering the concurrency limit frees the slots of the completed works, raising it schedules the queued works.
+    */
+   @Test
+   public void testConcurrencyLimit()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      InflowDispatcher dispatcher = new InflowDispatcher(InflowExecutors.workManager(workManager), 3, 10);
+      for (int i = 0; i < 6; i++)
+      {
+         Assert.assertTrue(dispatcher.dispatch(new CountingWork()));
+      }
+      Assert.assertEquals(3, dispatcher.getActiveCount());
+
+      dispatcher.setConcurrencyLimit(1);
+      Assert.assertEquals(1, dispatcher.getConcurrencyLimit());
+      workManager.scheduled.remove(0).run();
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(1, dispatcher.getActiveCount());
+      Assert.assertEquals(3, dispatcher.getQueueSize());
+      Assert.assertTrue(dispatcher.dispatch(new CountingWork()));
+      Assert.assertEquals(1, dispatcher.getActiveCount());
+
+      dispatcher.setConcurrencyLimit(10);
+      Assert.assertEquals(3, dispatcher.getConcurrencyLimit());
+      Assert.assertEquals(3, dispatcher.getActiveCount());
+      Assert.assertEquals(2, dispatcher.getQueueSize());
+   }
+
+   /**
+    * A work the executor rejects is rejected to the caller, which still owns it, and its slot is freed.
+    */
+   @Test
+   public void testExecutorRejects()
+   {
+      final List<Runnable> executed = new ArrayList<Runnable>();
+      final boolean[] rejecting = new boolean[] { true };
+      InflowDispatcher dispatcher = new InflowDispatcher(new Executor()
+      {
+         @Override
+         public void execute(Runnable command)
+         {
+            if (rejecting[0])
+            {
+               throw new RejectedExecutionException("rejected");
+            }
+            executed.add(command);
+         }
+      }, 1, 10);
+      CountingWork rejected = new CountingWork();
+      Assert.assertFalse(dispatcher.dispatch(rejected));
+      Assert.assertEquals(0, rejected.released);
+      Assert.assertEquals(0, rejected.runs);
+      Assert.assertEquals(0, dispatcher.getActiveCount());
+
+      rejecting[0] = false;
+      CountingWork accepted = new CountingWork();
+      Assert.assertTrue(dispatcher.dispatch(accepted));
+      executed.remove(0).run();
+      Assert.assertEquals(1, accepted.runs);
+      Assert.assertEquals(0, dispatcher.getActiveCount());
+   }
+
+   static class CountingWork implements Work
+   {
+      int runs;
+      int released;
+
+      @Override
+      public void run()
+      {
+         runs++;
+      }
+
+      @Override
+      public void release()
+      {
+         released++;
+      }
+   }
+
+   static class RecordingWorkManager implements WorkManager
+   {
+      final List<Work> scheduled = new ArrayList<Work>();
+
+      @Override
+      public void doWork(Work work) throws WorkException
+      {
+         work.run();
+      }
+
+      @Override
+      public void doWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+            throws WorkException
+      {
+         work.run();
+      }
+
+      @Override
+      public long startWork(Work work) throws WorkException
+      {
+         scheduleWork(work);
+         return 0;
+      }
+
+      @Override
+      public long startWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+            throws WorkException
+      {
+         scheduleWork(work);
+         return 0;
+      }
+
+      @Override
+      public void scheduleWork(Work work) throws WorkException
+      {
+         scheduled.add(work);
+      }
+
+      @Override
+      public void scheduleWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+            throws WorkException
+      {
+         scheduled.add(work);
+      }
+   }
+
+}
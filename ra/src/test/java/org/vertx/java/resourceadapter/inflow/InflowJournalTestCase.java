@@ -0,0 +1,246 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Test Case of the memory mapped inflow journal.
+ *
+ */
+public class InflowJournalTestCase
+{
+
+   private File directory;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      directory = File.createTempFile("inflow", "journal");
+      Assert.assertTrue(directory.delete());
+   }
+
+   @After
+   public void tearDown()
+   {
+      File[] files = directory.listFiles();
+      if (files != null)
+      {
+         for (File file: files)
+         {
+            file.delete();
+         }
+      }
+      directory.delete();
+   }
+
+   /**
+    * Entries are read in order with their bodies, completed ones are not read again after reopening.
+    */
+   @Test
+   public void testAppendAndReplay() throws Exception
+   {
+      InflowJournal journal = InflowJournal.open(directory, 4096);
+      long first = journal.append("journal-address", new JsonObject().putString("name", "first"));
+      long second = journal.append("journal-address", "second");
+      long third = journal.append("journal-address", new Buffer("third"));
+      Assert.assertEquals(3, journal.getPendingCount());
+
+      JournaledMessage<Object> message = journal.peek();
+      Assert.assertEquals(first, message.getSequence());
+      Assert.assertEquals("journal-address", message.address());
+      Assert.assertEquals("first", ((JsonObject)message.body()).getString("name"));
+      // not advanced yet, so read again
+      Assert.assertEquals(first, journal.peek().getSequence());
+      journal.advance(message);
+      journal.complete(message);
+
+      message = journal.peek();
+      Assert.assertEquals(second, message.getSequence());
+      Assert.assertEquals("second", message.body());
+      journal.advance(message);
+      Assert.assertEquals(third, journal.peek().getSequence());
+      Assert.assertEquals(2, journal.getPendingCount());
+      journal.close();
+
+      journal = InflowJournal.open(directory, 4096);
+      Assert.assertEquals(2, journal.getPendingCount());
+      message = journal.peek();
+      Assert.assertEquals(second, message.getSequence());
+      journal.advance(message);
+      journal.complete(message);
+      message = journal.peek();
+      Assert.assertEquals(third, message.getSequence());
+      Assert.assertEquals("third", ((Buffer)message.body()).toString());
+      journal.advance(message);
+      journal.complete(message);
+      Assert.assertNull(journal.peek());
+      Assert.assertEquals(0, journal.getPendingCount());
+      Assert.assertTrue(journal.append("journal-address", null) > third);
+      journal.close();
+   }
+
+   /**
+    * The writes roll to new segments, and a segment is deleted once all its entries are completed.
+    */
+   @Test
+   public void testSegmentRelease() throws Exception
+   {
+      InflowJournal journal = InflowJournal.open(directory, 1024);
+      StringBuilder body = new StringBuilder();
+      for (int i = 0; i < 300; i++)
+      {
+         body.append('x');
+      }
+      for (int i = 0; i < 9; i++)
+      {
+         journal.append("journal-address", body.toString());
+      }
+      Assert.assertTrue(segmentCount() > 2);
+
+      JournaledMessage<Object> message;
+      while ((message = journal.peek()) != null)
+      {
+         journal.advance(message);
+         journal.complete(message);
+      }
+      Assert.assertEquals(0, journal.getPendingCount());
+      Assert.assertEquals(1, segmentCount());
+      journal.close();
+
+      journal = InflowJournal.open(directory, 1024);
+      try
+      {
+         journal.append("journal-address", new StringBuilder(2048).append(body).append(body).append(body).append(body).toString());
+         Assert.fail("The message does not fit in a segment");
+      }
+      catch (IllegalArgumentException e)
+      {
+         // expected
+      }
+      journal.close();
+   }
+
+   /**
+    * A reply waiting for an answer fails at once, instead of never being answered.
+    */
+   @Test
+   public void testReplyWithTimeoutFails() throws Exception
+   {
+      InflowJournal journal = InflowJournal.open(directory, 4096);
+      journal.append("journal-address", "body");
+      JournaledMessage<Object> message = journal.peek();
+      final AtomicReference<AsyncResult<Message<Object>>> reply = new AtomicReference<AsyncResult<Message<Object>>>();
+      message.replyWithTimeout("answer", 60000L, new Handler<AsyncResult<Message<Object>>>()
+      {
+         @Override
+         public void handle(AsyncResult<Message<Object>> result)
+         {
+            reply.set(result);
+         }
+      });
+      Assert.assertNotNull(reply.get());
+      Assert.assertTrue(reply.get().failed());
+      Assert.assertTrue(reply.get().cause() instanceof ReplyException);
+      journal.close();
+   }
+
+   /**
+    * A message handed back is read again before the next entries, unless it is completed meanwhile.
+    */
+   @Test
+   public void testRequeue() throws Exception
+   {
+      InflowJournal journal = InflowJournal.open(directory, 4096);
+      long first = journal.append("journal-address", "first");
+      journal.append("journal-address", "second");
+      long third = journal.append("journal-address", "third");
+      JournaledMessage<Object> firstMessage = journal.peek();
+      journal.advance(firstMessage);
+      JournaledMessage<Object> secondMessage = journal.peek();
+      journal.advance(secondMessage);
+
+      journal.requeue(firstMessage);
+      journal.requeue(secondMessage);
+      journal.complete(secondMessage);
+      journal.requeue(secondMessage);
+      JournaledMessage<Object> message = journal.peek();
+      Assert.assertEquals(first, message.getSequence());
+      journal.advance(message);
+      message = journal.peek();
+      Assert.assertEquals(third, message.getSequence());
+      journal.advance(message);
+      Assert.assertNull(journal.peek());
+      journal.close();
+   }
+
+   /**
+    * An entry keeps its receive time while the journal is open, an entry replayed after reopening is received when read.
+    */
+   @Test
+   public void testReceivedNanos() throws Exception
+   {
+      InflowJournal journal = InflowJournal.open(directory, 4096);
+      long receivedNanos = System.nanoTime() - 1000000000L;
+      journal.append("journal-address", "first", receivedNanos);
+      JournaledMessage<Object> message = journal.peek();
+      Assert.assertEquals(receivedNanos, message.receivedNanos);
+      journal.advance(message);
+      journal.requeue(message);
+      Assert.assertEquals(receivedNanos, journal.peek().receivedNanos);
+      journal.close();
+
+      long reopenedNanos = System.nanoTime();
+      journal = InflowJournal.open(directory, 4096);
+      Assert.assertTrue(journal.peek().receivedNanos - reopenedNanos >= 0);
+      journal.close();
+   }
+
+   /**
+    * A directory is used by one journal at a time.
+    */
+   @Test
+   public void testDirectoryLock() throws Exception
+   {
+      InflowJournal journal = InflowJournal.open(directory, 4096);
+      try
+      {
+         InflowJournal.open(directory, 4096);
+         Assert.fail("The directory is locked");
+      }
+      catch (IOException e)
+      {
+         // expected
+      }
+      journal.close();
+      InflowJournal.open(directory, 4096).close();
+   }
+
+   private int segmentCount()
+   {
+      return directory.listFiles(new FilenameFilter()
+      {
+         @Override
+         public boolean accept(File dir, String name)
+         {
+            return name.endsWith(".journal");
+         }
+      }).length;
+   }
+
+}
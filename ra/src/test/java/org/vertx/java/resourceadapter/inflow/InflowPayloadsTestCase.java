@@ -0,0 +1,69 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * Test Case of the zero copy views of binary bodies.
+ *
+ */
+public class InflowPayloadsTestCase
+{
+
+   /**
+    * The view of a Buffer body is read-only and shares its content.
+    */
+   @Test
+   public void testBufferView()
+   {
+      Buffer buffer = new Buffer("payload");
+      ByteBuffer view = InflowPayloads.asByteBuffer(message(buffer));
+      Assert.assertTrue(view.isReadOnly());
+      Assert.assertEquals(7, view.remaining());
+      Assert.assertEquals('p', view.get(0));
+
+      buffer.setByte(0, (byte)'P');
+      Assert.assertEquals('P', view.get(0));
+   }
+
+   /**
+    * The view of a byte[] body is read-only and shares the array, other bodies have no view.
+    */
+   @Test
+   public void testBytesView()
+   {
+      byte[] bytes = new byte[] { 1, 2, 3 };
+      ByteBuffer view = InflowPayloads.asByteBuffer(message(bytes));
+      Assert.assertTrue(view.isReadOnly());
+      Assert.assertEquals(3, view.remaining());
+      bytes[2] = 4;
+      Assert.assertEquals(4, view.get(2));
+
+      Assert.assertNull(InflowPayloads.asByteBuffer(message("payload")));
+      Assert.assertNull(InflowPayloads.asByteBuffer(message(null)));
+   }
+
+   private static Message<?> message(final Object body)
+   {
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return "body".equals(method.getName()) ? body : null;
+            }
+         });
+   }
+
+}
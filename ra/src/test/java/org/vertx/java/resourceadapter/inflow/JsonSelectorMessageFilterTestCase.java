@@ -0,0 +1,117 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Test Case of the JSON selector filter.
+ *
+ */
+public class JsonSelectorMessageFilterTestCase
+{
+
+   /**
+    * All conditions need to match, numbers compare by value.
+    */
+   @Test
+   public void testConditions()
+   {
+      MessageFilter filter = new JsonSelectorMessageFilter("order.type == 'refund' && order.priority != 0");
+      Assert.assertTrue(filter.accept(message("{\"order\":{\"type\":\"refund\",\"priority\":2}}")));
+      Assert.assertFalse(filter.accept(message("{\"order\":{\"type\":\"refund\",\"priority\":0.0}}")));
+      Assert.assertFalse(filter.accept(message("{\"order\":{\"type\":\"sale\",\"priority\":2}}")));
+      Assert.assertFalse(filter.accept(message("{\"other\":true}")));
+   }
+
+   /**
+    * A missing field and a body which is not a JsonObject compare as null.
+    */
+   @Test
+   public void testMissingField()
+   {
+      Assert.assertTrue(new JsonSelectorMessageFilter("flag == null").accept(message("{}")));
+      Assert.assertTrue(new JsonSelectorMessageFilter("flag != true").accept(bodyMessage("not json")));
+      Assert.assertTrue(new JsonSelectorMessageFilter("flag == true").accept(message("{\"flag\":true}")));
+   }
+
+   /**
+    * A JSON object sent as text in a Buffer body is matched like a JsonObject body.
+    */
+   @Test
+   public void testEncodedBody()
+   {
+      MessageFilter filter = new JsonSelectorMessageFilter("order.type == 'refund' && order.priority != 0");
+      Assert.assertTrue(filter.accept(bodyMessage(new Buffer("{\"order\":{\"type\":\"refund\",\"priority\":2}}"))));
+      Assert.assertFalse(filter.accept(bodyMessage(new Buffer("{\"order\":{\"type\":\"sale\",\"priority\":2}}"))));
+      Assert.assertFalse(filter.accept(bodyMessage(new Buffer("{\"order\":"))));
+   }
+
+   /**
+    * Operators and &amp;&amp; inside a quoted string are part of the literal.
+    */
+   @Test
+   public void testQuotedOperators()
+   {
+      MessageFilter notEqual = new JsonSelectorMessageFilter("a != 'x==y'");
+      Assert.assertFalse(notEqual.accept(message("{\"a\":\"x==y\"}")));
+      Assert.assertTrue(notEqual.accept(message("{\"a\":\"x\"}")));
+
+      MessageFilter and = new JsonSelectorMessageFilter("b == 'p && q'");
+      Assert.assertTrue(and.accept(message("{\"b\":\"p && q\"}")));
+      Assert.assertFalse(and.accept(message("{\"b\":\"p\"}")));
+
+      MessageFilter both = new JsonSelectorMessageFilter("a == \"x != y\" && b == 'p && q'");
+      Assert.assertTrue(both.accept(message("{\"a\":\"x != y\",\"b\":\"p && q\"}")));
+      Assert.assertFalse(both.accept(message("{\"a\":\"x\",\"b\":\"p && q\"}")));
+   }
+
+   /**
+    * Invalid selectors are rejected.
+    */
+   @Test
+   public void testInvalidSelector()
+   {
+      String[] invalid = { "type", "== 'a'", "type == refund", "type == 'a' && ", "type == 'a", "type == 'a' 'b'", "type == 'a' == 'b'" };
+      for (String selector: invalid)
+      {
+         try
+         {
+            new JsonSelectorMessageFilter(selector);
+            Assert.fail("Selector should be invalid: " + selector);
+         }
+         catch (IllegalArgumentException e)
+         {
+            // expected
+         }
+      }
+   }
+
+   private static Message<?> message(String json)
+   {
+      return bodyMessage(new JsonObject(json));
+   }
+
+   private static Message<?> bodyMessage(final Object body)
+   {
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return "body".equals(method.getName()) ? body : null;
+            }
+         });
+   }
+
+}
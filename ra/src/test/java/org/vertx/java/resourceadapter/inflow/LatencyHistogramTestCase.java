@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test Case of the LatencyHistogram.
+ *
+ */
+public class LatencyHistogramTestCase
+{
+
+   /**
+    * Every value falls in a bucket whose highest value is within 1/32 of it.
+    */
+   @Test
+   public void testBucketPrecision()
+   {
+      long[] values = {0, 1, 63, 64, 65, 100, 1000, 123456, 987654321L, Long.MAX_VALUE};
+      for (long value: values)
+      {
+         long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+         Assert.assertTrue(highest >= value);
+         Assert.assertTrue(highest - value <= value / 32);
+      }
+      Assert.assertEquals(LatencyHistogram.bucketOf(64), LatencyHistogram.bucketOf(65));
+      Assert.assertTrue(LatencyHistogram.bucketOf(66) > LatencyHistogram.bucketOf(65));
+   }
+
+   /**
+    * Percentiles of a uniform distribution.
+    */
+   @Test
+   public void testPercentiles()
+   {
+      LatencyHistogram histogram = new LatencyHistogram();
+      for (long i = 1; i <= 10000; i++)
+      {
+         histogram.record(i);
+      }
+      Assert.assertEquals(10000, histogram.getCount());
+      Assert.assertEquals(10000, histogram.getMax());
+      Assert.assertEquals(5000.5d, histogram.getMean(), 0.001d);
+      assertClose(5000, histogram.getValueAtPercentile(50d));
+      assertClose(9900, histogram.getValueAtPercentile(99d));
+      Assert.assertEquals(10000, histogram.getValueAtPercentile(100d));
+
+      histogram.reset();
+      Assert.assertEquals(0, histogram.getCount());
+      Assert.assertEquals(0, histogram.getValueAtPercentile(99d));
+   }
+
+   private void assertClose(long expected, long actual)
+   {
+      Assert.assertTrue("expected about " + expected + " but was " + actual,
+         actual >= expected && actual - expected <= expected / 32);
+   }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Test Case of the lazily read JSON bodies.
+ *
+ */
+public class LazyJsonBodyTestCase
+{
+
+   private static final String DOCUMENT = "{\"items\":[{\"sku\":\"a\"},{\"sku\":\"b\"}],\"order\":{\"notes\":{\"text\":\"x\"},"
+      + "\"id\":42,\"total\":9.5,\"paid\":true,\"tags\":[\"t1\"],\"coupon\":null}}";
+
+   /**
+    * Fields are read from the encoded document, skipping the other fields.
+    */
+   @Test
+   public void testFieldValues()
+   {
+      LazyJsonBody json = LazyJsonBody.of(new Buffer(DOCUMENT));
+      Assert.assertEquals(42, ((Number)json.getValue("order.id")).intValue());
+      Assert.assertEquals(Double.valueOf(9.5), json.getValue("order.total"));
+      Assert.assertEquals(Boolean.TRUE, json.getValue("order.paid"));
+      Assert.assertEquals("x", ((JsonObject)json.getValue("order.notes")).getString("text"));
+      Assert.assertEquals("t1", ((JsonArray)json.getValue("order.tags")).get(0));
+      Assert.assertEquals(2, ((JsonArray)json.getValue("items")).size());
+      Assert.assertNull(json.getValue("order.coupon"));
+      Assert.assertNull(json.getValue("order.missing"));
+      Assert.assertNull(json.getValue("order.id.deeper"));
+   }
+
+   /**
+    * Buffer, byte[] and String bodies starting with a JSON object have a view, other bodies do not.
+    */
+   @Test
+   public void testBodies() throws Exception
+   {
+      Assert.assertEquals(42, ((Number)LazyJsonBody.of(DOCUMENT.getBytes("UTF-8")).getValue("order.id")).intValue());
+      Assert.assertEquals(42, ((Number)LazyJsonBody.of("  " + DOCUMENT).getValue("order.id")).intValue());
+      Assert.assertNull(LazyJsonBody.of("plain text"));
+      Assert.assertNull(LazyJsonBody.of(new Buffer("[1, 2]")));
+      Assert.assertNull(LazyJsonBody.of(new JsonObject(DOCUMENT)));
+      Assert.assertNull(LazyJsonBody.of((Object)null));
+   }
+
+   /**
+    * A document broken before the field is rejected, after the field it is not read.
+    */
+   @Test
+   public void testInvalidDocument()
+   {
+      LazyJsonBody json = LazyJsonBody.of("{\"id\":1,\"broken\":");
+      Assert.assertEquals(1, ((Number)json.getValue("id")).intValue());
+      try
+      {
+         json.getValue("other");
+         Assert.fail("The document is not valid JSON");
+      }
+      catch (IllegalArgumentException e)
+      {
+         // expected
+      }
+   }
+
+}
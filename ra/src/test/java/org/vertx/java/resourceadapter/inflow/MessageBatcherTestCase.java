@@ -0,0 +1,67 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+
+/**
+ * Test Case of the batching of the inflow messages.
+ *
+ */
+public class MessageBatcherTestCase
+{
+
+   private Vertx vertx;
+
+   @Before
+   public void setUp()
+   {
+      vertx = VertxFactory.newVertx();
+   }
+
+   @After
+   public void tearDown()
+   {
+      vertx.stop();
+   }
+
+   /**
+    * A full batch is handed over at once, the batch being filled is returned on close.
+    */
+   @Test
+   public void testClose()
+   {
+      final List<List<String>> batches = new ArrayList<List<String>>();
+      MessageBatcher<String> batcher = new MessageBatcher<String>(vertx, 2, 60000L, new Handler<List<String>>()
+      {
+         @Override
+         public void handle(List<String> batch)
+         {
+            batches.add(batch);
+         }
+      });
+      batcher.add("first");
+      batcher.add("second");
+      batcher.add("third");
+      batcher.add("fourth");
+      batcher.add("fifth");
+      Assert.assertEquals(Arrays.asList(Arrays.asList("first", "second"), Arrays.asList("third", "fourth")), batches);
+
+      Assert.assertEquals(Arrays.asList("fifth"), batcher.close());
+      Assert.assertTrue(batcher.close().isEmpty());
+      batcher.add("sixth");
+      Assert.assertEquals(2, batches.size());
+   }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Test Case of the deadline carried by the messages.
+ *
+ */
+public class MessageDeadlineTestCase
+{
+
+   /**
+    * The deadline is read from a JsonObject body, or from a JSON object encoded in a Buffer.
+    */
+   @Test
+   public void testDeadline()
+   {
+      MessageDeadline deadline = new MessageDeadline("meta.deadline");
+      JsonObject body = new JsonObject().putObject("meta", new JsonObject().putNumber("deadline", 1234L));
+      Assert.assertEquals(1234L, deadline.deadline(message(body)));
+      Assert.assertEquals(1234L, deadline.deadline(message(new Buffer(body.encode()))));
+   }
+
+   /**
+    * A message without a numeric deadline never expires.
+    */
+   @Test
+   public void testNoDeadline()
+   {
+      MessageDeadline deadline = new MessageDeadline("deadline");
+      Assert.assertEquals(MessageDeadline.NONE, deadline.deadline(message(new JsonObject())));
+      Assert.assertEquals(MessageDeadline.NONE, deadline.deadline(message(new JsonObject().putString("deadline", "soon"))));
+      Assert.assertEquals(MessageDeadline.NONE, deadline.deadline(message("not json")));
+      Assert.assertFalse(MessageDeadline.expired(MessageDeadline.NONE));
+   }
+
+   /**
+    * A deadline expires once it is in the past.
+    */
+   @Test
+   public void testExpired()
+   {
+      long now = System.currentTimeMillis();
+      Assert.assertTrue(MessageDeadline.expired(now - 1000L));
+      Assert.assertFalse(MessageDeadline.expired(now + 60000L));
+   }
+
+   private static Message<?> message(final Object body)
+   {
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return "body".equals(method.getName()) ? body : null;
+            }
+         });
+   }
+
+}
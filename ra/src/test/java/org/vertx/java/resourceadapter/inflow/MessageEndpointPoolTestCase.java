@@ -0,0 +1,123 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.resource.spi.UnavailableException;
+import javax.resource.spi.endpoint.MessageEndpoint;
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test Case of the MessageEndpoint pool of an activation.
+ *
+ */
+public class MessageEndpointPoolTestCase
+{
+
+   /**
+    * A lease waiting for an endpoint fails when the pool is closed.
+    */
+   @Test
+   public void testCloseWakesLease() throws Exception
+   {
+      final MessageEndpointPool pool = new MessageEndpointPool(endpointFactory(new AtomicBoolean()), 1);
+      MessageEndpoint leased = pool.lease();
+      final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+      final CountDownLatch done = new CountDownLatch(1);
+      Thread waiting = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               pool.lease();
+            }
+            catch (Exception e)
+            {
+               failure.set(e);
+            }
+            done.countDown();
+         }
+      };
+      waiting.start();
+      Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+
+      pool.close();
+      Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+      Assert.assertTrue(failure.get() instanceof UnavailableException);
+      pool.restore(leased);
+      Assert.assertEquals(0, pool.getSize());
+   }
+
+   /**
+    * An endpoint which fails to be created does not take a place in the pool.
+    */
+   @Test
+   public void testCreateFailure() throws Exception
+   {
+      AtomicBoolean broken = new AtomicBoolean(true);
+      MessageEndpointPool pool = new MessageEndpointPool(endpointFactory(broken), 1);
+      try
+      {
+         pool.lease();
+         Assert.fail("The endpoint can't be created");
+      }
+      catch (IllegalStateException e)
+      {
+         // expected
+      }
+      Assert.assertEquals(0, pool.getSize());
+
+      broken.set(false);
+      pool.restore(pool.lease());
+      Assert.assertEquals(1, pool.getSize());
+      pool.close();
+   }
+
+   private static MessageEndpointFactory endpointFactory(final AtomicBoolean broken)
+   {
+      return (MessageEndpointFactory)Proxy.newProxyInstance(MessageEndpointFactory.class.getClassLoader(),
+         new Class<?>[] { MessageEndpointFactory.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if (!"createEndpoint".equals(method.getName()))
+               {
+                  return null;
+               }
+               if (broken.get())
+               {
+                  throw new IllegalStateException("broken");
+               }
+               return endpoint();
+            }
+         });
+   }
+
+   private static MessageEndpoint endpoint()
+   {
+      return (MessageEndpoint)Proxy.newProxyInstance(MessageEndpoint.class.getClassLoader(),
+         new Class<?>[] { MessageEndpoint.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return null;
+            }
+         });
+   }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.resourceadapter.inflow.InflowDispatcherTestCase.CountingWork;
+import org.vertx.java.resourceadapter.inflow.InflowDispatcherTestCase.RecordingWorkManager;
+
+/**
+ * Test Case of the key partitioned inflow dispatching.
+ *
+ */
+public class OrderedInflowDispatcherTestCase
+{
+
+   /**
+    * Works with the same key run one after another, works with different keys run in parallel.
+    */
+   @Test
+   public void testSameKeyIsSerial()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      FixedKeyExtractor keyExtractor = new FixedKeyExtractor();
+      OrderedInflowDispatcher dispatcher = new OrderedInflowDispatcher(InflowExecutors.workManager(workManager), keyExtractor, 2, 10);
+
+      CountingWork first = new CountingWork();
+      CountingWork second = new CountingWork();
+      keyExtractor.key = Integer.valueOf(0);
+      Assert.assertTrue(dispatcher.dispatch(null, first));
+      Assert.assertTrue(dispatcher.dispatch(null, second));
+      Assert.assertEquals(1, workManager.scheduled.size());
+      Assert.assertEquals(1, dispatcher.getQueueSize());
+
+      keyExtractor.key = Integer.valueOf(1);
+      Assert.assertTrue(dispatcher.dispatch(null, new CountingWork()));
+      Assert.assertEquals(2, workManager.scheduled.size());
+
+      // the lane runs the second work after the first one, on the same thread
+      workManager.scheduled.remove(0).run();
+      Assert.assertEquals(1, first.runs);
+      Assert.assertEquals(1, second.runs);
+      Assert.assertEquals(0, dispatcher.getQueueSize());
+      Assert.assertEquals(1, workManager.scheduled.size());
+      Assert.assertEquals(1, dispatcher.getActiveCount());
+   }
+
+   /**
+    * The queue depth is shared by the lanes.
+    */
+   @Test
+   public void testLaneQueueDepth()
+   {
+      RecordingWorkManager workManager = new RecordingWorkManager();
+      FixedKeyExtractor keyExtractor = new FixedKeyExtractor();
+      OrderedInflowDispatcher dispatcher = new OrderedInflowDispatcher(InflowExecutors.workManager(workManager), keyExtractor, 2, 2);
+      keyExtractor.key = "hot";
+      Assert.assertTrue(dispatcher.dispatch(null, new CountingWork()));
+      Assert.assertTrue(dispatcher.dispatch(null, new CountingWork()));
+      Assert.assertFalse(dispatcher.dispatch(null, new CountingWork()));
+      dispatcher.close();
+      Assert.assertEquals(0, dispatcher.getQueueSize());
+   }
+
+   static class FixedKeyExtractor implements KeyExtractor
+   {
+      Object key;
+
+      @Override
+      public Object extractKey(Message<?> message)
+      {
+         return key;
+      }
+   }
+
+}
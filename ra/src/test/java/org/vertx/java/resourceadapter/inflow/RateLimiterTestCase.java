@@ -0,0 +1,149 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * Test Case of the token bucket rate limiting.
+ *
+ */
+public class RateLimiterTestCase
+{
+
+   private Vertx vertx;
+
+   @Before
+   public void setUp()
+   {
+      vertx = VertxFactory.newVertx();
+   }
+
+   @After
+   public void tearDown()
+   {
+      vertx.stop();
+   }
+
+   /**
+    * Messages beyond the burst are rejected when there is no queue.
+    */
+   @Test
+   public void testBurstRejection()
+   {
+      RecordingHandler handler = new RecordingHandler(2);
+      RateLimiter<Message<?>> limiter = new RateLimiter<Message<?>>(vertx, 1, 2, 0, handler);
+
+      Assert.assertTrue(limiter.submit(null));
+      Assert.assertTrue(limiter.submit(null));
+      Assert.assertFalse(limiter.submit(null));
+      Assert.assertEquals(2, handler.handled.size());
+      Assert.assertTrue(limiter.close().isEmpty());
+   }
+
+   /**
+    * Messages beyond the burst are queued up to the bound, then drained by the timer in order.
+    */
+   @Test
+   public void testQueuedDrain() throws Exception
+   {
+      RecordingHandler handler = new RecordingHandler(4);
+      RateLimiter<Message<?>> limiter = new RateLimiter<Message<?>>(vertx, 10, 1, 3, handler);
+      List<Message<?>> messages = new ArrayList<Message<?>>();
+      for (int i = 0; i < 4; i++)
+      {
+         Message<?> message = message("rate" + i);
+         messages.add(message);
+         Assert.assertTrue(limiter.submit(message));
+      }
+      Assert.assertEquals(1, handler.handled.size());
+      Assert.assertEquals(3, limiter.getQueueSize());
+      Assert.assertFalse(limiter.submit(null));
+
+      Assert.assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+      synchronized (handler)
+      {
+         Assert.assertEquals(messages, handler.handled);
+      }
+      Assert.assertTrue(limiter.close().isEmpty());
+      Assert.assertFalse(limiter.submit(null));
+   }
+
+   /**
+    * The messages queued when the activation stops are failed, so their senders don't wait for a reply.
+    */
+   @Test
+   public void testStopFailsQueued() throws Exception
+   {
+      VertxActivationSpec spec = new VertxActivationSpec();
+      spec.setAddress("limited");
+      spec.setMaxMessagesPerSecond(1);
+      spec.setBurstSize(1);
+      spec.setRateLimitQueueDepth(10);
+      VertxActivation activation = TestActivations.activate(vertx, new InflowDispatcherTestCase.RecordingWorkManager(),
+         spec, new CopyOnWriteArrayList<Message<?>>());
+      List<Integer> passedFailures = new CopyOnWriteArrayList<Integer>();
+      List<Integer> queuedFailures = new CopyOnWriteArrayList<Integer>();
+      activation.handleMessage(TestActivations.replyingMessage("limited", "passed", passedFailures));
+      activation.handleMessage(TestActivations.replyingMessage("limited", "queued", queuedFailures));
+      activation.stop();
+
+      Assert.assertTrue(passedFailures.isEmpty());
+      Assert.assertEquals(Arrays.asList(Integer.valueOf(VertxActivation.QUEUE_FULL_FAILURE)), queuedFailures);
+   }
+
+   static Message<?> message(final String address)
+   {
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if ("address".equals(method.getName()))
+               {
+                  return address;
+               }
+               return method.getName().equals("equals") ? Boolean.valueOf(proxy == args[0]) : null;
+            }
+         });
+   }
+
+   static class RecordingHandler implements Handler<Message<?>>
+   {
+      final List<Message<?>> handled = new ArrayList<Message<?>>();
+
+      final CountDownLatch latch;
+
+      RecordingHandler(int expected)
+      {
+         latch = new CountDownLatch(expected);
+      }
+
+      @Override
+      public synchronized void handle(Message<?> message)
+      {
+         handled.add(message);
+         latch.countDown();
+      }
+   }
+
+}
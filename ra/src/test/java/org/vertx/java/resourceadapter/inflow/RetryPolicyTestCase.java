@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * Test Case of the retry backoff.
+ *
+ */
+public class RetryPolicyTestCase
+{
+
+   /**
+    * The delay doubles on each retry and is capped by the maximum delay.
+    */
+   @Test
+   public void testExponentialBackoff()
+   {
+      RetryPolicy policy = new RetryPolicy(10, 100L, 1000L);
+      Assert.assertEquals(100L, policy.getDelayMillis(0));
+      Assert.assertEquals(200L, policy.getDelayMillis(1));
+      Assert.assertEquals(800L, policy.getDelayMillis(3));
+      Assert.assertEquals(1000L, policy.getDelayMillis(4));
+      Assert.assertEquals(1000L, policy.getDelayMillis(Integer.MAX_VALUE));
+   }
+
+   /**
+    * No more retry is allowed once maxRetries retries are made.
+    */
+   @Test
+   public void testMaxRetries()
+   {
+      RetryPolicy policy = new RetryPolicy(2, 10L, 10L);
+      Assert.assertTrue(policy.canRetry(0));
+      Assert.assertTrue(policy.canRetry(1));
+      Assert.assertFalse(policy.canRetry(2));
+      Assert.assertFalse(new RetryPolicy(0, 10L, 10L).canRetry(0));
+   }
+
+   /**
+    * A delivery which fails once the activation is stopping fails its sender instead of being retried.
+    */
+   @Test
+   public void testFailedOnStop() throws Exception
+   {
+      Vertx vertx = VertxFactory.newVertx();
+      InflowDispatcherTestCase.RecordingWorkManager workManager = new InflowDispatcherTestCase.RecordingWorkManager();
+      VertxActivationSpec spec = new VertxActivationSpec();
+      spec.setAddress("retried");
+      VertxActivation activation = TestActivations.activate(vertx, workManager, spec, new CopyOnWriteArrayList<Message<?>>());
+      try
+      {
+         List<Integer> failures = new CopyOnWriteArrayList<Integer>();
+         activation.handleMessage(TestActivations.replyingMessage("retried", "body", failures));
+         Assert.assertEquals(1, workManager.scheduled.size());
+         activation.stop();
+
+         // the endpoint pool is closed, so the delivery fails
+         workManager.scheduled.get(0).run();
+         Assert.assertEquals(Arrays.asList(Integer.valueOf(VertxActivation.QUEUE_FULL_FAILURE)), failures);
+      }
+      finally
+      {
+         vertx.stop();
+      }
+   }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Test Case of the event bus handler shared by the activations on one address.
+ *
+ */
+public class SharedSubscriptionTestCase
+{
+
+   private Vertx vertx;
+
+   @Before
+   public void setUp()
+   {
+      vertx = VertxFactory.newVertx();
+   }
+
+   @After
+   public void tearDown()
+   {
+      vertx.stop();
+   }
+
+   /**
+    * A sent message is handled once, the subscribers take the messages in turn.
+    */
+   @Test
+   public void testNoDuplicateDelivery() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(4);
+      TestSubscriber first = new TestSubscriber(latch, true);
+      TestSubscriber second = new TestSubscriber(latch, true);
+      SharedSubscription.subscribe(vertx, "shared", false, first);
+      SharedSubscription.subscribe(vertx, "shared", false, second);
+      Assert.assertEquals(2, SharedSubscription.getSubscriberCount(vertx, "shared", false));
+      Assert.assertEquals(0, SharedSubscription.getSubscriberCount(vertx, "shared", true));
+
+      for (int i = 0; i < 4; i++)
+      {
+         vertx.eventBus().send("shared", "hello");
+      }
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      Assert.assertEquals(2, first.handled.get());
+      Assert.assertEquals(2, second.handled.get());
+
+      SharedSubscription.unsubscribe(vertx, "shared", false, first);
+      SharedSubscription.unsubscribe(vertx, "shared", false, first);
+      Assert.assertEquals(1, SharedSubscription.getSubscriberCount(vertx, "shared", false));
+      SharedSubscription.unsubscribe(vertx, "shared", false, second);
+      Assert.assertEquals(0, SharedSubscription.getSubscriberCount(vertx, "shared", false));
+   }
+
+   /**
+    * A published message is handed to each co-located subscriber, each one with its own copy.
+    */
+   @Test
+   public void testPublish() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(2);
+      TestSubscriber first = new TestSubscriber(latch, true);
+      TestSubscriber second = new TestSubscriber(latch, true);
+      SharedSubscription.subscribe(vertx, "shared", false, first);
+      SharedSubscription.subscribe(vertx, "shared", false, second);
+
+      vertx.eventBus().publish("shared", new JsonObject().putString("name", "hello"));
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      Assert.assertEquals(1, first.handled.get());
+      Assert.assertEquals(1, second.handled.get());
+      Assert.assertEquals("hello", ((JsonObject)first.last.get().body()).getString("name"));
+      Assert.assertEquals("hello", ((JsonObject)second.last.get().body()).getString("name"));
+      Assert.assertNotSame(first.last.get().body(), second.last.get().body());
+
+      SharedSubscription.unsubscribe(vertx, "shared", false, first);
+      SharedSubscription.unsubscribe(vertx, "shared", false, second);
+   }
+
+   /**
+    * A sent message goes to a subscriber which accepts it, it is dropped once if none does.
+    */
+   @Test
+   public void testSendSelector() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(4);
+      TestSubscriber rejecting = new TestSubscriber(latch, false);
+      TestSubscriber accepting = new TestSubscriber(latch, true);
+      SharedSubscription.subscribe(vertx, "shared", false, rejecting);
+      SharedSubscription.subscribe(vertx, "shared", false, accepting);
+
+      for (int i = 0; i < 4; i++)
+      {
+         vertx.eventBus().send("shared", "hello");
+      }
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      Assert.assertEquals(0, rejecting.handled.get());
+      Assert.assertEquals(0, rejecting.dropped.get());
+      Assert.assertEquals(4, accepting.handled.get());
+
+      SharedSubscription.unsubscribe(vertx, "shared", false, accepting);
+      vertx.eventBus().send("shared", "hello");
+      Thread.sleep(100);
+      Assert.assertEquals(1, rejecting.dropped.get());
+      Assert.assertEquals(0, rejecting.handled.get());
+      SharedSubscription.unsubscribe(vertx, "shared", false, rejecting);
+   }
+
+   /**
+    * A published message is dropped by the subscribers which don't accept it only.
+    */
+   @Test
+   public void testPublishSelector() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(1);
+      TestSubscriber rejecting = new TestSubscriber(latch, false);
+      TestSubscriber accepting = new TestSubscriber(latch, true);
+      SharedSubscription.subscribe(vertx, "shared", false, rejecting);
+      SharedSubscription.subscribe(vertx, "shared", false, accepting);
+
+      vertx.eventBus().publish("shared", "hello");
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      Assert.assertEquals(1, rejecting.dropped.get());
+      Assert.assertEquals(0, rejecting.handled.get());
+      Assert.assertEquals(1, accepting.handled.get());
+      Assert.assertEquals(0, accepting.dropped.get());
+
+      SharedSubscription.unsubscribe(vertx, "shared", false, rejecting);
+      SharedSubscription.unsubscribe(vertx, "shared", false, accepting);
+   }
+
+   /**
+    * A paused subscriber unsubscribes, the messages go to the other subscriber until it subscribes again,
+    * and the event bus handler is unregistered once all of them are paused.
+    */
+   @Test
+   public void testPause() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(2);
+      TestSubscriber first = new TestSubscriber(latch, true);
+      TestSubscriber second = new TestSubscriber(latch, true);
+      SharedSubscription.subscribe(vertx, "shared", false, first);
+      SharedSubscription.subscribe(vertx, "shared", false, second);
+
+      SharedSubscription.unsubscribe(vertx, "shared", false, first);
+      vertx.eventBus().send("shared", "hello");
+      vertx.eventBus().send("shared", "hello");
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Assert.assertEquals(0, first.handled.get());
+      Assert.assertEquals(2, second.handled.get());
+
+      SharedSubscription.unsubscribe(vertx, "shared", false, second);
+      Assert.assertEquals(0, SharedSubscription.getSubscriberCount(vertx, "shared", false));
+      final CountDownLatch noHandler = new CountDownLatch(1);
+      vertx.eventBus().sendWithTimeout("shared", "hello", 1000L, new Handler<AsyncResult<Message<Object>>>()
+      {
+         @Override
+         public void handle(AsyncResult<Message<Object>> result)
+         {
+            if (result.failed())
+            {
+               noHandler.countDown();
+            }
+         }
+      });
+      Assert.assertTrue(noHandler.await(5, TimeUnit.SECONDS));
+      Assert.assertEquals(0, first.handled.get());
+      Assert.assertEquals(2, second.handled.get());
+
+      SharedSubscription.subscribe(vertx, "shared", false, first);
+      Assert.assertEquals(1, SharedSubscription.getSubscriberCount(vertx, "shared", false));
+      SharedSubscription.unsubscribe(vertx, "shared", false, first);
+   }
+
+   static class TestSubscriber implements SharedSubscription.Subscriber
+   {
+      private final CountDownLatch latch;
+
+      private final boolean accepting;
+
+      private final AtomicInteger handled = new AtomicInteger();
+
+      private final AtomicInteger dropped = new AtomicInteger();
+
+      private final AtomicReference<Message<?>> last = new AtomicReference<Message<?>>();
+
+      TestSubscriber(CountDownLatch latch, boolean accepting)
+      {
+         this.latch = latch;
+         this.accepting = accepting;
+      }
+
+      @Override
+      public boolean accept(Message<?> message)
+      {
+         return accepting;
+      }
+
+      @Override
+      public void handle(Message<?> message)
+      {
+         last.set(message);
+         handled.incrementAndGet();
+         latch.countDown();
+      }
+
+      @Override
+      public void dropped(Message<?> message)
+      {
+         dropped.incrementAndGet();
+      }
+   }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import javax.resource.spi.BootstrapContext;
+import javax.resource.spi.endpoint.MessageEndpoint;
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+import javax.resource.spi.work.WorkManager;
+
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.resourceadapter.VertxResourceAdapter;
+
+/**
+ * Builds activations running on stubs of the container, for the tests of the inflow behaviour.
+ *
+ */
+class TestActivations
+{
+
+   private TestActivations()
+   {
+   }
+
+   /**
+    * Activates an endpoint which records the messages it receives, the works are run by the given WorkManager.
+    *
+    * @param vertx the Vert.x platform
+    * @param workManager the WorkManager of the resource adapter
+    * @param spec the activation spec
+    * @param received the messages received by the endpoint
+    * @return the activation, ready to receive messages
+    */
+   static VertxActivation activate(Vertx vertx, WorkManager workManager, VertxActivationSpec spec,
+      List<Message<?>> received) throws Exception
+   {
+      VertxResourceAdapter ra = new VertxResourceAdapter();
+      ra.start(bootstrapContext(workManager));
+      VertxActivation activation = new VertxActivation(ra, endpointFactory(received), spec);
+      activation.whenReady(vertx);
+      return activation;
+   }
+
+   private static BootstrapContext bootstrapContext(final WorkManager workManager)
+   {
+      return (BootstrapContext)Proxy.newProxyInstance(BootstrapContext.class.getClassLoader(),
+         new Class<?>[] { BootstrapContext.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               return "getWorkManager".equals(method.getName()) ? workManager : null;
+            }
+         });
+   }
+
+   private static MessageEndpointFactory endpointFactory(final List<Message<?>> received)
+   {
+      return (MessageEndpointFactory)Proxy.newProxyInstance(MessageEndpointFactory.class.getClassLoader(),
+         new Class<?>[] { MessageEndpointFactory.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if ("isDeliveryTransacted".equals(method.getName()))
+               {
+                  return Boolean.FALSE;
+               }
+               return "createEndpoint".equals(method.getName()) ? endpoint(received) : null;
+            }
+         });
+   }
+
+   private static MessageEndpoint endpoint(final List<Message<?>> received)
+   {
+      return (MessageEndpoint)Proxy.newProxyInstance(MessageEndpoint.class.getClassLoader(),
+         new Class<?>[] { MessageEndpoint.class, VertxListener.class }, new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               if ("onMessage".equals(method.getName()))
+               {
+                  received.add((Message<?>)args[0]);
+               }
+               return null;
+            }
+         });
+   }
+
+   /**
+    * A message which expects a reply, and records the failure codes it is failed with.
+    *
+    * @param address the address of the message
+    * @param body the body of the message
+    * @param failures the failure codes
+    * @return the message
+    */
+   static Message<?> replyingMessage(final String address, final Object body, final List<Integer> failures)
+   {
+      return (Message<?>)Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] { Message.class },
+         new InvocationHandler()
+         {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+               String name = method.getName();
+               if ("address".equals(name))
+               {
+                  return address;
+               }
+               if ("body".equals(name))
+               {
+                  return body;
+               }
+               if ("replyAddress".equals(name))
+               {
+                  return "reply-" + System.identityHashCode(proxy);
+               }
+               if ("fail".equals(name))
+               {
+                  failures.add((Integer)args[0]);
+                  return null;
+               }
+               if ("equals".equals(name))
+               {
+                  return Boolean.valueOf(proxy == args[0]);
+               }
+               return "hashCode".equals(name) ? Integer.valueOf(System.identityHashCode(proxy)) : null;
+            }
+         });
+   }
+
+}
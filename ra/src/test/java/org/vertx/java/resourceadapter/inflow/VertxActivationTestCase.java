@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package org.vertx.java.resourceadapter.inflow;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+
+/**
+ * Test Case of the lifecycle of an activation.
+ *
+ */
+public class VertxActivationTestCase
+{
+
+   /**
+    * A failed setup is recorded and reported by the statistics of the address until the activation is stopped.
+    */
+   @Test
+   public void testSetupFailure() throws Exception
+   {
+      Vertx vertx = VertxFactory.newVertx();
+      VertxActivationSpec spec = new VertxActivationSpec();
+      spec.setAddress("missing.*");
+      VertxActivation activation = TestActivations.activate(vertx, new InflowDispatcherTestCase.RecordingWorkManager(),
+         spec, new CopyOnWriteArrayList<Message<?>>());
+      try
+      {
+         Assert.assertNotNull(activation.getFailure());
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = new ObjectName("org.vertx.java.resourceadapter:type=InflowStatistics,address="
+            + ObjectName.quote("missing.*"));
+         String reported = (String)server.getAttribute(name, "ActivationFailure");
+         Assert.assertTrue(reported, reported.contains("No address resolved from: missing.*"));
+
+         activation.stop();
+         Assert.assertFalse(server.isRegistered(name));
+      }
+      finally
+      {
+         vertx.stop();
+      }
+   }
+
+}